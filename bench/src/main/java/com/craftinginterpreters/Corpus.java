@@ -0,0 +1,87 @@
+package com.craftinginterpreters;
+
+import java.util.Random;
+
+/**
+ * Synthetic Lox sources for the benchmarks, each stressing one part of the scanner.
+ *
+ * Generation is seeded, so every fork and every run scans exactly the same text.
+ */
+public enum Corpus {
+    IDENTIFIERS {
+        @Override
+        void appendFragment(StringBuilder out, Random random) {
+            out.append("var ").append(identifier(random)).append(" = ").append(identifier(random))
+                    .append(" + ").append(identifier(random)).append(";\n");
+            out.append("if (").append(identifier(random)).append(" and this.").append(identifier(random))
+                    .append(") print ").append(identifier(random)).append(";\n");
+        }
+    },
+    NUMBERS {
+        @Override
+        void appendFragment(StringBuilder out, Random random) {
+            out.append(random.nextInt(1_000_000)).append(", ")
+                    .append(random.nextInt(1000)).append('.').append(random.nextInt(100_000)).append(", ")
+                    .append(random.nextLong() & Long.MAX_VALUE).append(",\n");
+        }
+    },
+    STRINGS {
+        @Override
+        void appendFragment(StringBuilder out, Random random) {
+            out.append("print \"").append(words(random, 1 + random.nextInt(12))).append("\";\n");
+        }
+    },
+    COMMENTS {
+        @Override
+        void appendFragment(StringBuilder out, Random random) {
+            out.append("    // ").append(words(random, 4 + random.nextInt(12))).append('\n');
+            out.append("/* ").append(words(random, 8)).append("\n   ").append(words(random, 8)).append(" */\n");
+        }
+    },
+    NESTED_COMMENTS {
+        @Override
+        void appendFragment(StringBuilder out, Random random) {
+            var depth = 1 + random.nextInt(16);
+            for (int i = 0; i < depth; i++) {
+                out.append("/* ").append(words(random, 2)).append(' ');
+            }
+            for (int i = 0; i < depth; i++) {
+                out.append(" */");
+            }
+            out.append('\n');
+        }
+    };
+
+    abstract void appendFragment(StringBuilder out, Random random);
+
+    String generate(int size) {
+        var random = new Random(size * 31L + ordinal());
+        var out = new StringBuilder(size + 256);
+        while (out.length() < size) {
+            appendFragment(out, random);
+        }
+        return out.toString();
+    }
+
+    private static String identifier(Random random) {
+        var length = 1 + random.nextInt(10);
+        var identifier = new StringBuilder(length);
+        identifier.append((char) ('a' + random.nextInt(26)));
+        for (int i = 1; i < length; i++) {
+            var c = random.nextInt(37);
+            identifier.append(c < 26 ? (char) ('a' + c) : c < 36 ? (char) ('0' + c - 26) : '_');
+        }
+        return identifier.toString();
+    }
+
+    private static String words(Random random, int count) {
+        var words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                words.append(' ');
+            }
+            words.append(identifier(random));
+        }
+        return words.toString();
+    }
+}
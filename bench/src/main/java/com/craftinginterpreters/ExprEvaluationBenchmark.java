@@ -0,0 +1,134 @@
+package com.craftinginterpreters;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Boxed Evaluator vs. UnboxedEvaluator vs. bytecode compiled by ExprCompiler, over large, generated
+ * expressions.
+ *
+ * The `numbers` shape is pure arithmetic, which compiles down to double instructions. The `mixed` shape
+ * also concatenates strings and compares values of every type, so compiled code has to call the boxed
+ * Operators helpers and the unboxed evaluator has to hand subtrees to the boxed one.
+ *
+ * Run with `-prof gc` to see the Double allocations the unboxed evaluator avoids.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ExprEvaluationBenchmark {
+    private static final TokenType[] OPERATORS = {TokenType.PLUS, TokenType.MINUS, TokenType.STAR, TokenType.SLASH};
+    private static final TokenType[] COMPARISONS = {TokenType.GREATER, TokenType.GREATER_EQUAL, TokenType.LESS, TokenType.LESS_EQUAL};
+    private static final TokenType[] EQUALITIES = {TokenType.EQUAL_EQUAL, TokenType.BANG_EQUAL};
+    // The depth of the arithmetic and string subtrees at the bottom of a mixed tree
+    private static final int MIXED_LEAF_DEPTH = 3;
+
+    // A balanced tree of this depth has 2^depth literals
+    @Param({"8", "14", "18"})
+    public int depth;
+
+    @Param({"numbers", "mixed"})
+    public String shape;
+
+    Expr expr;
+    Evaluator boxed;
+    UnboxedEvaluator unboxed;
+    CompiledExpr compiled;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        expr = shape.equals("numbers") ? generate(new Random(depth), depth) : condition(new Random(depth), depth);
+        boxed = new Evaluator();
+        unboxed = new UnboxedEvaluator();
+        compiled = ExprCompiler.compile(expr);
+    }
+
+    private static Expr generate(Random random, int depth) {
+        if (depth == 0) {
+            return new Expr.Literal((double) (1 + random.nextInt(100)));
+        }
+        var left = generate(random, depth - 1);
+        var right = generate(random, depth - 1);
+        var operator = OPERATORS[random.nextInt(OPERATORS.length)];
+        var binary = new Expr.Binary(left, new Token(operator, operator.name(), null), right);
+        if (random.nextInt(4) == 0) {
+            return new Expr.Grouping(new Expr.Unary(new Token(TokenType.MINUS, "-", null), binary));
+        }
+        return binary;
+    }
+
+    /**
+     * A tree that evaluates to a Boolean. Above the bottom few levels it compares values of any type for
+     * equality, so no large subtree is pure arithmetic or one long string.
+     */
+    private static Expr condition(Random random, int depth) {
+        if (depth == 0) {
+            return new Expr.Literal(random.nextBoolean());
+        }
+        if (depth <= MIXED_LEAF_DEPTH && random.nextBoolean()) {
+            return binary(generate(random, depth - 1), COMPARISONS[random.nextInt(COMPARISONS.length)], generate(random, depth - 1));
+        }
+        return binary(anything(random, depth - 1), EQUALITIES[random.nextInt(EQUALITIES.length)], anything(random, depth - 1));
+    }
+
+    /**
+     * A tree that evaluates to a string, by concatenating short string literals
+     */
+    private static Expr string(Random random, int depth) {
+        if (depth == 0) {
+            return new Expr.Literal(String.valueOf((char) ('a' + random.nextInt(3))));
+        }
+        return binary(string(random, depth - 1), TokenType.PLUS, string(random, depth - 1));
+    }
+
+    private static Expr anything(Random random, int depth) {
+        if (depth > MIXED_LEAF_DEPTH) {
+            return condition(random, depth);
+        }
+        switch (random.nextInt(3)) {
+            case 0: return generate(random, depth);
+            case 1: return string(random, depth);
+            default: return condition(random, depth);
+        }
+    }
+
+    private static Expr binary(Expr left, TokenType operator, Expr right) {
+        return new Expr.Binary(left, new Token(operator, operator.name(), null), right);
+    }
+
+    @Benchmark
+    public Object boxed() {
+        return boxed.evaluate(expr);
+    }
+
+    @Benchmark
+    public void unboxed(Blackhole blackhole) {
+        if (shape.equals("numbers")) {
+            blackhole.consume(unboxed.evaluateNumber(expr));
+        } else {
+            blackhole.consume(unboxed.evaluateCondition(expr));
+        }
+    }
+
+    @Benchmark
+    public Object compiled() {
+        return compiled.evaluate();
+    }
+}
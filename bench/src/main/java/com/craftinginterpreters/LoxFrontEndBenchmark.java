@@ -0,0 +1,82 @@
+package com.craftinginterpreters;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LoxFrontEnd throughput for a batch of small, independent scripts as the number of threads grows.
+ *
+ * `parallelism` 0 uses the front end's default executor (virtual threads where available). The `scripts`
+ * counter is reported as scripts/s, which should scale with parallelism up to the number of cores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class LoxFrontEndBenchmark {
+    private static final int BATCH = 1024;
+
+    @Param({"1", "2", "4", "8", "0"})
+    public int parallelism;
+
+    @Param({"2048"})
+    public int scriptSize;
+
+    List<String> scripts;
+    LoxFrontEnd frontEnd;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        scripts = new ArrayList<>(BATCH);
+        var corpora = Corpus.values();
+        for (int i = 0; i < BATCH; i++) {
+            // Vary the size a little so the scripts aren't all identical
+            scripts.add(corpora[i % corpora.length].generate(scriptSize + i));
+        }
+        frontEnd = parallelism == 0
+                ? new LoxFrontEnd()
+                : new LoxFrontEnd(Executors.newFixedThreadPool(parallelism), Lexer.MAX_ERRORS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        frontEnd.close();
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Throughput {
+        public long scripts;
+    }
+
+    @Benchmark
+    public int scanBatch(Throughput throughput) {
+        var futures = frontEnd.submitAll(scripts);
+        var tokens = 0;
+        for (CompletableFuture<LoxFrontEnd.Result> future : futures) {
+            tokens += future.join().tokens().size();
+        }
+        throughput.scripts += futures.size();
+        return tokens;
+    }
+}
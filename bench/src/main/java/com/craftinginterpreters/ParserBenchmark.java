@@ -0,0 +1,70 @@
+package com.craftinginterpreters;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scanning and parsing a single expression, either wide (a long sum of products) or deep (nested
+ * parentheses and negations), with `size` terms or levels.
+ *
+ * Run with `-prof gc` to see the allocation per operation, which should be the tree and the tokens only.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+    public enum Shape {
+        WIDE {
+            @Override
+            String generate(int size) {
+                var source = new StringBuilder("1");
+                for (int i = 1; i < size; i++) {
+                    source.append(i % 2 == 0 ? " + " : " * ").append(i);
+                }
+                return source.toString();
+            }
+        },
+        DEEP {
+            @Override
+            String generate(int size) {
+                return "-(".repeat(size) + "1" + ")".repeat(size);
+            }
+        };
+
+        abstract String generate(int size);
+    }
+
+    @Param({"WIDE", "DEEP"})
+    public Shape shape;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    String source;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        source = shape.generate(size);
+    }
+
+    @Benchmark
+    public Expr parse() {
+        var reporter = new PrintingErrorReporter(System.err, source);
+        return new Parser(new Scanner(source, reporter), reporter).parse();
+    }
+}
@@ -0,0 +1,90 @@
+package com.craftinginterpreters;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scanner throughput over the synthetic corpora.
+ *
+ * Besides ops/s, the `megabytes` and `tokens` counters are reported as rates, i.e. MB/s and tokens/s.
+ * Run with `-prof gc` to also get the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ScannerBenchmark {
+    @Param({"IDENTIFIERS", "NUMBERS", "STRINGS", "COMMENTS", "NESTED_COMMENTS"})
+    public Corpus corpus;
+
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    String source;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        source = corpus.generate(size);
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Throughput {
+        public double megabytes;
+        public long tokens;
+
+        void record(String source, int tokenCount) {
+            megabytes += source.length() / 1_000_000.0;
+            tokens += tokenCount;
+        }
+    }
+
+    @Benchmark
+    public List<Token> scanTokens(Throughput throughput) {
+        var tokens = new Scanner(source).scanTokens();
+        throughput.record(source, tokens.size());
+        return tokens;
+    }
+
+    @Benchmark
+    public List<Token> dfaScanTokens(Throughput throughput) {
+        var tokens = new DfaScanner(source, new PrintingErrorReporter(System.err, source)).scanTokens();
+        throughput.record(source, tokens.size());
+        return tokens;
+    }
+
+    @Benchmark
+    public TokenBuffer scanTokenBuffer(Throughput throughput) {
+        var tokens = new Scanner(source).scanTokenBuffer();
+        throughput.record(source, tokens.size());
+        return tokens;
+    }
+
+    @Benchmark
+    public Token nextToken(Throughput throughput) {
+        var scanner = new Scanner(source);
+        var count = 1;
+        Token token;
+        while ((token = scanner.nextToken()).type != TokenType.EOF) {
+            count++;
+        }
+        throughput.record(source, count);
+        return token;
+    }
+}
@@ -0,0 +1,49 @@
+package com.craftinginterpreters;
+
+/**
+ * Bulk searches over a source for the scanner's inner loops: skipping whitespace, and finding the end of
+ * a line comment or string literal.
+ *
+ * Each picks the fastest route the kind of source allows. String.indexOf() is a JIT intrinsic that
+ * searches many chars per instruction, and MappedSource searches its bytes a long at a time. Anything
+ * else falls back to a charAt() loop. All of them give exactly the results of the charAt() loop.
+ */
+final class CharSearch {
+    private CharSearch() {
+    }
+
+    /**
+     * Index of the first `c` in source[from, to), or `to` if there isn't one
+     */
+    static int indexOf(CharSequence source, char c, int from, int to) {
+        if (source instanceof String) {
+            var index = ((String) source).indexOf(c, from);
+            return index < 0 || index >= to ? to : index;
+        }
+        if (source instanceof MappedSource) {
+            return ((MappedSource) source).indexOf(c, from, to);
+        }
+        for (int i = from; i < to; i++) {
+            if (source.charAt(i) == c) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Index of the first char in source[from, to) that isn't a space, tab, carriage return or newline, or `to`
+     */
+    static int skipBlanks(CharSequence source, int from, int to) {
+        if (source instanceof MappedSource) {
+            return ((MappedSource) source).skipBlanks(from, to);
+        }
+        for (int i = from; i < to; i++) {
+            var c = source.charAt(i);
+            if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+                return i;
+            }
+        }
+        return to;
+    }
+}
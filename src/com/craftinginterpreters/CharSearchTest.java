@@ -0,0 +1,55 @@
+package com.craftinginterpreters;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CharSearchTest {
+
+    @Test
+    void testAllSourcesMatchCharAtLoops() {
+        var random = new Random(8);
+        var alphabet = " \t\r\n\"/*xA\u0080";
+        for (int i = 0; i < 200; i++) {
+            var text = new StringBuilder();
+            var length = random.nextInt(40);
+            for (int c = 0; c < length; c++) {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            var string = text.toString();
+            // A view into the middle of a larger buffer, so the long reads aren't aligned
+            var padded = ("##" + string + "###").getBytes(StandardCharsets.ISO_8859_1);
+            var mapped = new MappedSource(ByteBuffer.wrap(padded)).subSequence(2, 2 + length);
+
+            for (int from = 0; from <= length; from++) {
+                for (int to = from; to <= length; to++) {
+                    for (var source : new CharSequence[]{string, mapped, new StringBuilder(string)}) {
+                        var where = source.getClass().getSimpleName() + " " + from + ".." + to + " of " + string;
+                        assertEquals(indexOf(string, '\n', from, to), CharSearch.indexOf(source, '\n', from, to), where);
+                        assertEquals(indexOf(string, '"', from, to), CharSearch.indexOf(source, '"', from, to), where);
+                        assertEquals(skipBlanks(string, from, to), CharSearch.skipBlanks(source, from, to), where);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int indexOf(String source, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (source.charAt(i) == c) return i;
+        }
+        return to;
+    }
+
+    private static int skipBlanks(String source, int from, int to) {
+        for (int i = from; i < to; i++) {
+            var c = source.charAt(i);
+            if (c != ' ' && c != '\t' && c != '\r' && c != '\n') return i;
+        }
+        return to;
+    }
+}
@@ -0,0 +1,73 @@
+package com.craftinginterpreters;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps diagnostics for later instead of printing them, formatting nothing until printTo() is called.
+ *
+ * At most `limit` diagnostics are kept; past that they are only counted, so an error-heavy input costs
+ * constant memory however many errors it has.
+ */
+public class CollectingErrorReporter implements ErrorReporter {
+    private static final int DEFAULT_LIMIT = 100;
+
+    private final int limit;
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+    private int errorCount = 0;
+
+    public CollectingErrorReporter() {
+        this(DEFAULT_LIMIT);
+    }
+
+    public CollectingErrorReporter(int limit) {
+        this.limit = limit;
+    }
+
+    @Override
+    public void report(Diagnostic diagnostic) {
+        if (diagnostics.size() < limit) {
+            diagnostics.add(diagnostic);
+        }
+        errorCount++;
+    }
+
+    @Override
+    public boolean hadError() {
+        return errorCount > 0;
+    }
+
+    /**
+     * Every error reported, including those past the limit that weren't kept
+     */
+    public int errorCount() {
+        return errorCount;
+    }
+
+    /**
+     * The first `limit` diagnostics, in the order they were reported
+     */
+    public List<Diagnostic> diagnostics() {
+        return Collections.unmodifiableList(diagnostics);
+    }
+
+    /**
+     * Pass the kept diagnostics on to another reporter, e.g. to replay them in order
+     */
+    public void forwardTo(ErrorReporter reporter) {
+        diagnostics.forEach(reporter::report);
+    }
+
+    /**
+     * Print the kept diagnostics with their lines and columns in `source`, the source they were found in
+     */
+    public void printTo(PrintStream out, CharSequence source) {
+        var lines = new LineMap(source);
+        diagnostics.forEach(diagnostic -> out.println(diagnostic.toString(lines)));
+        if (errorCount > diagnostics.size()) {
+            out.println("... and " + (errorCount - diagnostics.size()) + " more errors");
+        }
+    }
+}
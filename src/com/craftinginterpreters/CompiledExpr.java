@@ -0,0 +1,11 @@
+package com.craftinginterpreters;
+
+/**
+ * An expression compiled to JVM bytecode by ExprCompiler
+ */
+interface CompiledExpr {
+    /**
+     * The Lox value of the expression: Double, String, Boolean, or null for nil
+     */
+    Object evaluate();
+}
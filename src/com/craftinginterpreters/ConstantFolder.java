@@ -0,0 +1,210 @@
+package com.craftinginterpreters;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * Simplifies expression trees ahead of evaluation, keeping Lox semantics intact:
+ *
+ * - Operators whose operands are all literals are evaluated once, with the Evaluator, and replaced by a
+ *   literal of the result. Anything that would raise a RuntimeError is left alone, so the error still
+ *   happens when (and if) the expression is evaluated.
+ * - Grouping nodes are dropped, since the tree structure already records the grouping.
+ * - `-(-x)` becomes `x` when x always evaluates to a number (or throws), and `!!x` becomes `x` when x
+ *   always evaluates to a Boolean (or throws).
+ *
+ * The folder counts how many nodes it removed, to measure what it buys on real code.
+ */
+class ConstantFolder {
+    private final Evaluator evaluator = new Evaluator();
+    private int eliminated = 0;
+
+    /**
+     * The simplified tree. Walks it with an explicit stack rather than recursion, so any depth can be folded.
+     */
+    Expr fold(Expr expr) {
+        return new Walk().run(expr);
+    }
+
+    /**
+     * Nodes removed by all fold() calls so far
+     */
+    int eliminated() {
+        return eliminated;
+    }
+
+    /**
+     * The explicit stack of one fold() call. Visiting the node on top of `pending` takes one step for it,
+     * as in the Evaluator: an operator pushes its operands the first time, then is folded over the
+     * folded operands the second.
+     */
+    private final class Walk implements Expr.Visitor<Void> {
+        private final ArrayDeque<Expr> pending = new ArrayDeque<>();
+        // Whether the node at each depth of `pending` has had its operands pushed yet
+        private final BitSet expanded = new BitSet();
+        // Folded operands whose operators haven't been folded yet, last operand on top
+        private final ArrayList<Expr> folded = new ArrayList<>();
+
+        Expr run(Expr expr) {
+            pending.push(expr);
+            while (!pending.isEmpty()) {
+                pending.peek().accept(this);
+            }
+            return folded.get(0);
+        }
+
+        @Override
+        public Void visitBinaryExpr(Expr.Binary expr) {
+            if (expand()) {
+                // Operands are pushed last to first, so the first is folded first
+                pending.push(expr.right);
+                pending.push(expr.left);
+                return null;
+            }
+            finish();
+            var right = folded.remove(folded.size() - 1);
+            var left = folded.remove(folded.size() - 1);
+            folded.add(binary(expr, left, right));
+            return null;
+        }
+
+        @Override
+        public Void visitGroupingExpr(Expr.Grouping expr) {
+            // Dropped, and its expression folded in its place
+            eliminated++;
+            finish();
+            pending.push(expr.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitLiteralExpr(Expr.Literal expr) {
+            finish();
+            folded.add(expr);
+            return null;
+        }
+
+        @Override
+        public Void visitUnaryExpr(Expr.Unary expr) {
+            if (expand()) {
+                pending.push(expr.right);
+                return null;
+            }
+            finish();
+            folded.add(unary(expr, folded.remove(folded.size() - 1)));
+            return null;
+        }
+
+        /**
+         * Mark the node on top as expanded, returning false if it already was
+         */
+        private boolean expand() {
+            var depth = pending.size() - 1;
+            if (expanded.get(depth)) {
+                return false;
+            }
+            expanded.set(depth);
+            return true;
+        }
+
+        /**
+         * Pop the node on top, which is done with, leaving its depth unexpanded for the next one
+         */
+        private void finish() {
+            expanded.clear(pending.size() - 1);
+            pending.pop();
+        }
+    }
+
+    /**
+     * Fold `expr` given its already folded operands
+     */
+    private Expr binary(Expr.Binary expr, Expr left, Expr right) {
+        var folded = left == expr.left && right == expr.right ? expr : new Expr.Binary(left, expr.operator, right);
+
+        if (left instanceof Expr.Literal && right instanceof Expr.Literal) {
+            return evaluate(folded, 2);
+        }
+        return folded;
+    }
+
+    /**
+     * Fold `expr` given its already folded operand
+     */
+    private Expr unary(Expr.Unary expr, Expr right) {
+        if (right instanceof Expr.Unary) {
+            var inner = (Expr.Unary) right;
+            var type = expr.operator.type;
+            var isDoubleNegation = type == TokenType.MINUS && inner.operator.type == TokenType.MINUS && isNumber(inner.right);
+            var isDoubleNot = type == TokenType.BANG && inner.operator.type == TokenType.BANG && isBoolean(inner.right);
+            if (isDoubleNegation || isDoubleNot) {
+                eliminated += 2;
+                return inner.right;
+            }
+        }
+
+        var folded = right == expr.right ? expr : new Expr.Unary(expr.operator, right);
+        if (right instanceof Expr.Literal) {
+            return evaluate(folded, 1);
+        }
+        return folded;
+    }
+
+    /**
+     * Replace an operator over `operands` literals with the literal it evaluates to
+     */
+    private Expr evaluate(Expr expr, int operands) {
+        try {
+            var value = evaluator.evaluate(expr);
+            eliminated += operands;
+            return new Expr.Literal(value);
+        } catch (RuntimeError error) {
+            return expr;
+        }
+    }
+
+    /**
+     * Whether expr always evaluates to a number, if it doesn't throw
+     */
+    private static boolean isNumber(Expr expr) {
+        if (expr instanceof Expr.Literal) {
+            return ((Expr.Literal) expr).value instanceof Double;
+        }
+        if (expr instanceof Expr.Unary) {
+            return ((Expr.Unary) expr).operator.type == TokenType.MINUS;
+        }
+        if (expr instanceof Expr.Binary) {
+            // Not PLUS, which can also concatenate strings
+            var type = ((Expr.Binary) expr).operator.type;
+            return type == TokenType.MINUS || type == TokenType.STAR || type == TokenType.SLASH;
+        }
+        return false;
+    }
+
+    /**
+     * Whether expr always evaluates to a Boolean, if it doesn't throw
+     */
+    private static boolean isBoolean(Expr expr) {
+        if (expr instanceof Expr.Literal) {
+            return ((Expr.Literal) expr).value instanceof Boolean;
+        }
+        if (expr instanceof Expr.Unary) {
+            return ((Expr.Unary) expr).operator.type == TokenType.BANG;
+        }
+        if (expr instanceof Expr.Binary) {
+            switch (((Expr.Binary) expr).operator.type) {
+                case GREATER:
+                case GREATER_EQUAL:
+                case LESS:
+                case LESS_EQUAL:
+                case EQUAL_EQUAL:
+                case BANG_EQUAL:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,106 @@
+package com.craftinginterpreters;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.craftinginterpreters.EvaluatorTest.binary;
+import static com.craftinginterpreters.EvaluatorTest.literal;
+import static com.craftinginterpreters.EvaluatorTest.randomExpr;
+import static com.craftinginterpreters.EvaluatorTest.unary;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConstantFolderTest {
+
+    @Test
+    void testFoldsConstantArithmetic() {
+        // (1 + 2) * (3 - -4)
+        var expr = binary(
+                new Expr.Grouping(binary(literal(1.), TokenType.PLUS, literal(2.))),
+                TokenType.STAR,
+                new Expr.Grouping(binary(literal(3.), TokenType.MINUS, unary(TokenType.MINUS, literal(4.)))));
+
+        var folder = new ConstantFolder();
+        var folded = folder.fold(expr);
+
+        assertEquals(21., ((Expr.Literal) folded).value);
+        assertEquals(9, folder.eliminated());
+    }
+
+    @Test
+    void testFoldsStringConcatenationAndTruthiness() {
+        var folder = new ConstantFolder();
+        assertEquals("foobar", ((Expr.Literal) folder.fold(binary(literal("foo"), TokenType.PLUS, literal("bar")))).value);
+        assertEquals(true, ((Expr.Literal) folder.fold(unary(TokenType.BANG, literal(null)))).value);
+        assertEquals(false, ((Expr.Literal) folder.fold(unary(TokenType.BANG, literal(0.)))).value);
+    }
+
+    @Test
+    void testKeepsExpressionsThatWouldFail() {
+        // -"a" must still fail at runtime, but the grouping around it can go
+        var failing = unary(TokenType.MINUS, literal("a"));
+        var folder = new ConstantFolder();
+        var folded = folder.fold(new Expr.Grouping(failing));
+
+        assertSame(failing, folded);
+        assertEquals(1, folder.eliminated());
+    }
+
+    @Test
+    void testSimplifiesDoubleNegation() {
+        // - -("a" - 1) still fails, just with one less negation around it
+        var failing = binary(literal("a"), TokenType.MINUS, literal(1.));
+        var folder = new ConstantFolder();
+        assertSame(failing, folder.fold(unary(TokenType.MINUS, unary(TokenType.MINUS, failing))));
+        assertEquals(2, folder.eliminated());
+
+        // But "a" + 1 might not be a number as far as the folder can tell, so - -("a" + 1) is kept
+        var concat = binary(literal("a"), TokenType.PLUS, literal(1.));
+        var doubleNegation = unary(TokenType.MINUS, unary(TokenType.MINUS, concat));
+        assertInstanceOf(Expr.Unary.class, new ConstantFolder().fold(doubleNegation));
+    }
+
+    @Test
+    void testFoldingPreservesSemantics() {
+        var random = new Random(5);
+        var folder = new ConstantFolder();
+        for (int i = 0; i < 20_000; i++) {
+            var expr = randomExpr(random, 5);
+            var folded = folder.fold(expr);
+            assertEquals(evaluate(expr), evaluate(folded));
+        }
+        assertTrue(folder.eliminated() > 0);
+    }
+
+    @Test
+    void testDeepTreesDoNotOverflowTheStack() {
+        var depth = 100_000;
+        var reporter = new CollectingErrorReporter();
+        var nested = new Parser(new Scanner("(".repeat(depth) + "1" + ")".repeat(depth)), reporter).parse();
+        var chain = new Parser(new Scanner("1" + " + 1".repeat(depth)), reporter).parse();
+        var negated = new Parser(new Scanner("-".repeat(depth) + "\"x\""), reporter).parse();
+        assertFalse(reporter.hadError());
+
+        var folder = new ConstantFolder();
+        assertEquals(1., ((Expr.Literal) folder.fold(nested)).value);
+        assertEquals(depth, folder.eliminated());
+        assertEquals(depth + 1., ((Expr.Literal) folder.fold(chain)).value);
+
+        // -"x" fails at runtime so it stays, but the negations around it cancel out in pairs
+        var eliminated = folder.eliminated();
+        var folded = folder.fold(negated);
+        assertEquals("Operand must be a number.", evaluate(folded));
+        assertTrue(folder.eliminated() - eliminated >= depth - 2);
+    }
+
+    /**
+     * The value, or the message of the RuntimeError
+     */
+    private static Object evaluate(Expr expr) {
+        try {
+            return new Evaluator().evaluate(expr);
+        } catch (RuntimeError error) {
+            return error.getMessage();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.craftinginterpreters;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Totals what every scanner reports, safely across threads. LongAdders keep concurrent scanners (e.g. in
+ * LoxFrontEnd) from contending on the counters.
+ */
+public final class CountingScannerMetrics implements ScannerMetrics, ScannerMetricsMXBean {
+    static final String OBJECT_NAME = "com.craftinginterpreters:type=ScannerMetrics";
+
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+    private static final Diagnostic.Kind[] ERROR_KINDS = Diagnostic.Kind.values();
+    private static final Section[] SECTIONS = Section.values();
+
+    private final LongAdder chars = new LongAdder();
+    private final LongAdder[] tokens = adders(TOKEN_TYPES.length);
+    private final LongAdder[] errors = adders(ERROR_KINDS.length);
+    private final LongAdder[] sectionCalls = adders(SECTIONS.length);
+    private final LongAdder[] sectionNanos = adders(SECTIONS.length);
+    private final LongAdder allocated = new LongAdder();
+
+    private static LongAdder[] adders(int count) {
+        var adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    @Override
+    public void scanned(int chars) {
+        this.chars.add(chars);
+    }
+
+    @Override
+    public void token(TokenType type) {
+        tokens[type.ordinal()].increment();
+    }
+
+    @Override
+    public void error(Diagnostic.Kind kind) {
+        errors[kind.ordinal()].increment();
+    }
+
+    @Override
+    public void section(Section section, long nanos) {
+        sectionCalls[section.ordinal()].increment();
+        sectionNanos[section.ordinal()].add(nanos);
+    }
+
+    @Override
+    public void allocated(long bytes) {
+        allocated.add(bytes);
+    }
+
+    @Override
+    public long getCharsScanned() {
+        return chars.sum();
+    }
+
+    public long tokenCount(TokenType type) {
+        return tokens[type.ordinal()].sum();
+    }
+
+    public long errorCount(Diagnostic.Kind kind) {
+        return errors[kind.ordinal()].sum();
+    }
+
+    public long sectionCalls(Section section) {
+        return sectionCalls[section.ordinal()].sum();
+    }
+
+    public long sectionNanos(Section section) {
+        return sectionNanos[section.ordinal()].sum();
+    }
+
+    @Override
+    public Map<String, Long> getTokenCounts() {
+        return counts(TOKEN_TYPES, tokens);
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        return counts(ERROR_KINDS, errors);
+    }
+
+    @Override
+    public Map<String, Long> getSectionCalls() {
+        return counts(SECTIONS, sectionCalls);
+    }
+
+    @Override
+    public Map<String, Long> getSectionNanos() {
+        return counts(SECTIONS, sectionNanos);
+    }
+
+    @Override
+    public long getEstimatedAllocatedBytes() {
+        return allocated.sum();
+    }
+
+    /**
+     * The non-zero counts, by name, in declaration order
+     */
+    private static Map<String, Long> counts(Enum<?>[] keys, LongAdder[] adders) {
+        var counts = new LinkedHashMap<String, Long>();
+        for (int i = 0; i < keys.length; i++) {
+            var count = adders[i].sum();
+            if (count != 0) {
+                counts.put(keys[i].name(), count);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public void reset() {
+        chars.reset();
+        allocated.reset();
+        for (var adders : new LongAdder[][]{tokens, errors, sectionCalls, sectionNanos}) {
+            for (var adder : adders) {
+                adder.reset();
+            }
+        }
+    }
+
+    /**
+     * Expose these metrics through the platform MBean server
+     */
+    public void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register " + OBJECT_NAME, e);
+        }
+    }
+
+    public String toJson() {
+        var json = new StringBuilder();
+        json.append("{\"charsScanned\":").append(getCharsScanned());
+        json.append(",\"tokens\":");
+        appendJson(json, getTokenCounts());
+        json.append(",\"errors\":");
+        appendJson(json, getErrorCounts());
+        json.append(",\"sectionCalls\":");
+        appendJson(json, getSectionCalls());
+        json.append(",\"sectionNanos\":");
+        appendJson(json, getSectionNanos());
+        json.append(",\"estimatedAllocatedBytes\":").append(getEstimatedAllocatedBytes());
+        return json.append('}').toString();
+    }
+
+    // Keys are enum constant names, so they never need escaping
+    private static void appendJson(StringBuilder json, Map<String, Long> counts) {
+        json.append('{');
+        var first = true;
+        for (var count : counts.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append('"').append(count.getKey()).append("\":").append(count.getValue());
+        }
+        json.append('}');
+    }
+}
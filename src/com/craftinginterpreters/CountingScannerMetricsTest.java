@@ -0,0 +1,65 @@
+package com.craftinginterpreters;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountingScannerMetricsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testCountsAndJson() {
+        var metrics = new CountingScannerMetrics();
+        metrics.scanned(10);
+        metrics.token(TokenType.IDENTIFIER);
+        metrics.token(TokenType.IDENTIFIER);
+        metrics.token(TokenType.EOF);
+        metrics.error(Diagnostic.Kind.UNTERMINATED_STRING);
+        metrics.section(ScannerMetrics.Section.IDENTIFIER, 5);
+        metrics.section(ScannerMetrics.Section.IDENTIFIER, 7);
+        metrics.allocated(64);
+
+        assertEquals(Map.of("IDENTIFIER", 2L, "EOF", 1L), metrics.getTokenCounts());
+        assertEquals(12, metrics.sectionNanos(ScannerMetrics.Section.IDENTIFIER));
+        assertEquals(
+                "{\"charsScanned\":10,\"tokens\":{\"IDENTIFIER\":2,\"EOF\":1},\"errors\":{\"UNTERMINATED_STRING\":1},"
+                        + "\"sectionCalls\":{\"IDENTIFIER\":2},\"sectionNanos\":{\"IDENTIFIER\":12},"
+                        + "\"estimatedAllocatedBytes\":64}",
+                metrics.toJson());
+
+        metrics.reset();
+        assertEquals(0, metrics.getCharsScanned());
+        assertTrue(metrics.getTokenCounts().isEmpty());
+    }
+
+    @Test
+    void testLoxDumpsMetricsAtExit() throws Exception {
+        // Metrics are fixed when the Scanner class loads, so they're tested in a JVM of their own
+        var script = Files.writeString(directory.resolve("script.lox"), "var x = 12 + y; // done\n\"s\" @");
+        var json = directory.resolve("metrics.json");
+        var classpath = Paths.get(Lox.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        var java = Paths.get(System.getProperty("java.home"), "bin", "java");
+
+        var process = new ProcessBuilder(java.toString(), "-Dlox.metrics=true", "-Dlox.metrics.json=" + json,
+                "-cp", classpath.toString(), "com.craftinginterpreters.Lox", script.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        assertEquals(65, process.waitFor());
+
+        var metrics = Files.readString(json);
+        assertTrue(metrics.startsWith("{\"charsScanned\":29,"), metrics);
+        assertTrue(metrics.contains("\"tokens\":{\"PLUS\":1,\"SEMICOLON\":1,\"EQUAL\":1,"
+                + "\"IDENTIFIER\":2,\"STRING\":1,\"NUMBER\":1,\"VAR\":1,\"EOF\":1}"), metrics);
+        assertTrue(metrics.contains("\"errors\":{\"UNEXPECTED_CHARACTER\":1}"), metrics);
+        assertTrue(metrics.contains("\"sectionCalls\":{\"STRING\":1,\"NUMBER\":1,\"IDENTIFIER\":3}"), metrics);
+    }
+}
@@ -0,0 +1,464 @@
+package com.craftinginterpreters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.craftinginterpreters.TokenType.*;
+
+/**
+ * A table-driven lexer, producing exactly the tokens and diagnostics Scanner does.
+ *
+ * Each token is recognized by running a DFA over the source: a char class table maps each char to its
+ * column, and a transition table gives the next state, so the inner loop is two array loads per char.
+ * The longest match wins, e.g. `12.` is the number `12` followed by a `.`. The tables are generated when
+ * the class loads, from the OPERATORS spellings below and the keywords in Keywords. Chars are grouped
+ * into classes by which transitions they take, so the table only has as many columns as there are
+ * distinct behaviours.
+ *
+ * Nested block comments aren't regular, so the DFA only recognizes their opening and a small loop does
+ * the rest. The source is copied into a char array up front, so that reading it needs no calls.
+ *
+ * Select it for Lox with -Dlox.lexer=dfa. It reports the same ScannerMetrics as Scanner, with each
+ * section timed from the start of the DFA run for its token.
+ */
+public class DfaScanner implements Lexer {
+    // Every metrics call is guarded by ScannerMetrics.ENABLED, so the JIT drops them when metrics are off
+    private static final ScannerMetrics METRICS = ScannerMetrics.GLOBAL;
+
+    private static final Object[][] OPERATORS = {
+            {"(",  LEFT_PAREN},
+            {")",  RIGHT_PAREN},
+            {"{",  LEFT_BRACE},
+            {"}",  RIGHT_BRACE},
+            {",",  COMMA},
+            {".",  DOT},
+            {"+",  PLUS},
+            {"-",  MINUS},
+            {"*",  STAR},
+            {"/",  SLASH},
+            {";",  SEMICOLON},
+            {"!",  BANG},
+            {"!=", BANG_EQUAL},
+            {"=",  EQUAL},
+            {"==", EQUAL_EQUAL},
+            {">",  GREATER},
+            {">=", GREATER_EQUAL},
+            {"<",  LESS},
+            {"<=", LESS_EQUAL},
+    };
+
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final Set<TokenType> KEYWORDS = EnumSet.copyOf(Keywords.spellings().values());
+
+    // What reaching a state means. Accepting states producing a token hold the TokenType's ordinal.
+    private static final int REJECT = -1;
+    private static final int SKIP = -2;
+    private static final int BLOCK_COMMENT = -3;
+
+    private static final int DEAD = -1;
+    private static final int START = 0;
+    // All chars outside ASCII share the last column, since the grammar only gives them meaning in strings
+    // and comments
+    private static final int NON_ASCII = 128;
+
+    private static final byte[] CHAR_CLASSES = new byte[NON_ASCII + 1];
+    private static final int CLASS_COUNT;
+    private static final int[] TRANSITIONS;
+    private static final int[] ACCEPTS;
+    // The state inside a string literal, which running out of source in is an error
+    private static final int STRING_BODY;
+
+    static {
+        var dfa = new Builder();
+        var start = dfa.state(REJECT);
+
+        var blank = dfa.state(SKIP);
+        for (var c : " \t\r\n".toCharArray()) {
+            dfa.on(start, c, blank);
+            dfa.on(blank, c, blank);
+        }
+
+        for (var operator : OPERATORS) {
+            var state = dfa.path(start, (String) operator[0]);
+            dfa.accepts.set(state, ((TokenType) operator[1]).ordinal());
+        }
+
+        var slash = dfa.path(start, "/");
+        var lineComment = dfa.state(SKIP);
+        dfa.on(slash, '/', lineComment);
+        for (int c = 0; c <= NON_ASCII; c++) {
+            if (c != '\n') dfa.on(lineComment, c, lineComment);
+        }
+        dfa.on(slash, '*', dfa.state(BLOCK_COMMENT));
+
+        var integer = dfa.state(NUMBER.ordinal());
+        var point = dfa.state(REJECT);
+        var fraction = dfa.state(NUMBER.ordinal());
+        for (var c = '0'; c <= '9'; c++) {
+            dfa.on(start, c, integer);
+            dfa.on(integer, c, integer);
+            dfa.on(point, c, fraction);
+            dfa.on(fraction, c, fraction);
+        }
+        dfa.on(integer, '.', point);
+
+        var stringBody = dfa.state(REJECT);
+        dfa.on(start, '"', stringBody);
+        for (int c = 0; c <= NON_ASCII; c++) {
+            dfa.on(stringBody, c, c == '"' ? dfa.state(STRING.ordinal()) : stringBody);
+        }
+
+        // Identifiers, with a path through them for each keyword
+        var identifier = dfa.identifierState(DEAD);
+        for (int c = 0; c < NON_ASCII; c++) {
+            if (Character.isAlpha((char) c)) dfa.on(start, c, identifier);
+        }
+        for (var keyword : Keywords.spellings().entrySet()) {
+            var state = start;
+            for (var c : keyword.getKey().toCharArray()) {
+                var next = dfa.next(state, c);
+                if (next == identifier) {
+                    next = dfa.identifierState(identifier);
+                    dfa.on(state, c, next);
+                }
+                state = next;
+            }
+            dfa.accepts.set(state, keyword.getValue().ordinal());
+        }
+
+        dfa.checkCovers(EnumSet.of(IDENTIFIER, STRING, NUMBER, EOF));
+        STRING_BODY = stringBody;
+        CLASS_COUNT = dfa.classify(CHAR_CLASSES);
+        TRANSITIONS = dfa.transitions(CHAR_CLASSES, CLASS_COUNT);
+        ACCEPTS = dfa.accepts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private CharSequence source;
+    private char[] chars;
+    private ErrorReporter reporter;
+    private int current = 0;
+    private SymbolTable symbols = new SymbolTable();
+    private int errorCount = 0;
+    private int errorLimit = MAX_ERRORS;
+
+    public DfaScanner(CharSequence source, ErrorReporter reporter) {
+        reset(source, reporter);
+    }
+
+    @Override
+    public void reset(CharSequence source, ErrorReporter reporter) {
+        this.source = source;
+        this.reporter = reporter;
+        if (source instanceof String) {
+            chars = ((String) source).toCharArray();
+        } else {
+            chars = new char[source.length()];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = source.charAt(i);
+            }
+        }
+        reset();
+    }
+
+    private void reset() {
+        current = 0;
+        symbols = new SymbolTable();
+        errorCount = 0;
+    }
+
+    @Override
+    public List<Token> scanTokens() {
+        reset();
+
+        var tokens = new ArrayList<Token>();
+        Token token;
+        do {
+            token = nextToken();
+            tokens.add(token);
+        } while (token.type != EOF);
+        return tokens;
+    }
+
+    @Override
+    public Token nextToken() {
+        var chars = this.chars;
+        while (current < chars.length) {
+            var start = current;
+            var started = ScannerMetrics.ENABLED ? System.nanoTime() : 0;
+
+            // Run the DFA as far as it goes, remembering the last accepting state passed through
+            var state = START;
+            var accepted = REJECT;
+            var acceptedEnd = start;
+            for (int i = start; i < chars.length; ) {
+                var c = chars[i];
+                var next = TRANSITIONS[state * CLASS_COUNT + charClass(c)];
+                if (next == DEAD) {
+                    break;
+                }
+                state = next;
+                i++;
+                if (ACCEPTS[state] != REJECT) {
+                    accepted = ACCEPTS[state];
+                    acceptedEnd = i;
+                }
+            }
+
+            switch (accepted) {
+                case SKIP:
+                    current = acceptedEnd;
+                    break;
+                case BLOCK_COMMENT:
+                    current = acceptedEnd;
+                    blockComment(start);
+                    endSection(ScannerMetrics.Section.BLOCK_COMMENT, started);
+                    break;
+                case REJECT:
+                    reject(start, state);
+                    if (state == STRING_BODY) {
+                        endSection(ScannerMetrics.Section.STRING, started);
+                    }
+                    break;
+                default:
+                    current = acceptedEnd;
+                    var type = TYPES[accepted];
+                    var token = token(type, start);
+                    if (ScannerMetrics.ENABLED) {
+                        endSection(section(type), started);
+                        METRICS.scanned(current - start);
+                        METRICS.token(type);
+                    }
+                    return token;
+            }
+            if (ScannerMetrics.ENABLED) {
+                METRICS.scanned(current - start);
+            }
+        }
+
+        if (ScannerMetrics.ENABLED) {
+            METRICS.token(EOF);
+            METRICS.allocated(ScannerMetrics.TOKEN_BYTES);
+        }
+        return new Token(EOF, "", null, current);
+    }
+
+    @Override
+    public void setErrorLimit(int errorLimit) {
+        this.errorLimit = Lexer.checkErrorLimit(errorLimit);
+    }
+
+    private Token token(TokenType type, int start) {
+        if (type == STRING) {
+            var literal = symbols.symbol(symbols.id(source, start + 1, current - 1));
+            // Only the literal takes a symbol id, matching Scanner and TokenBuffer
+            var lexeme = source.subSequence(start, current).toString();
+            if (ScannerMetrics.ENABLED) {
+                METRICS.allocated(ScannerMetrics.TOKEN_BYTES + ScannerMetrics.stringBytes(lexeme.length()));
+            }
+            return new Token(STRING, lexeme, literal, start);
+        }
+        if (type == IDENTIFIER || KEYWORDS.contains(type)) {
+            var lexeme = symbols.symbol(symbols.id(source, start, current));
+            if (ScannerMetrics.ENABLED) {
+                METRICS.allocated(ScannerMetrics.TOKEN_BYTES);
+            }
+            return new Token(type, lexeme, lexeme, start);
+        }
+        var lexeme = source.subSequence(start, current).toString();
+        var literal = type == NUMBER ? (Object) Scanner.numberValue(source, start, current) : null;
+        if (ScannerMetrics.ENABLED) {
+            METRICS.allocated(ScannerMetrics.TOKEN_BYTES + ScannerMetrics.stringBytes(lexeme.length())
+                    + (literal != null ? ScannerMetrics.DOUBLE_BYTES : 0));
+        }
+        return new Token(type, lexeme, literal, start);
+    }
+
+    /**
+     * The section Scanner times the scanning of a `type` token in, or null if it doesn't time it
+     */
+    private static ScannerMetrics.Section section(TokenType type) {
+        if (type == STRING) {
+            return ScannerMetrics.Section.STRING;
+        }
+        if (type == NUMBER) {
+            return ScannerMetrics.Section.NUMBER;
+        }
+        if (type == IDENTIFIER || KEYWORDS.contains(type)) {
+            return ScannerMetrics.Section.IDENTIFIER;
+        }
+        return null;
+    }
+
+    private static void endSection(ScannerMetrics.Section section, long started) {
+        if (ScannerMetrics.ENABLED && section != null) {
+            METRICS.section(section, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * The DFA didn't accept anything: either an unterminated string, or a char that can't start a token
+     */
+    private void reject(int start, int state) {
+        if (state == STRING_BODY) {
+            current = chars.length;
+            report(new Diagnostic(Diagnostic.Kind.UNTERMINATED_STRING, start, 0));
+            return;
+        }
+        // The whole run of chars that have no transition out of the start state makes one error
+        current = start + 1;
+        while (current < chars.length && TRANSITIONS[START * CLASS_COUNT + charClass(chars[current])] == DEAD) {
+            current++;
+        }
+        report(new Diagnostic(Diagnostic.Kind.UNEXPECTED_CHARACTER, start, chars[start], current - start));
+    }
+
+    private static int charClass(char c) {
+        return CHAR_CLASSES[c < NON_ASCII ? c : NON_ASCII];
+    }
+
+    /**
+     * Pass a diagnostic on, giving up on the rest of the source once the error limit is reached
+     */
+    private void report(Diagnostic diagnostic) {
+        if (ScannerMetrics.ENABLED) {
+            METRICS.error(diagnostic.kind);
+        }
+        reporter.report(diagnostic);
+        if (++errorCount == errorLimit) {
+            var gaveUp = new Diagnostic(Diagnostic.Kind.TOO_MANY_ERRORS, current, 0);
+            current = chars.length;
+            report(gaveUp);
+        }
+    }
+
+    /**
+     * Skip the rest of a block comment whose opening `/*` has been consumed, honouring nested comments
+     */
+    private void blockComment(int start) {
+        var nestingCount = 1;
+        while (nestingCount > 0 && current < chars.length) {
+            var c = chars[current];
+            var next = current + 1 < chars.length ? chars[current + 1] : '\0';
+            if (c == '/' && next == '*') {
+                nestingCount++;
+            } else if (c == '*' && next == '/') {
+                nestingCount--;
+            }
+            current++;
+        }
+
+        if (current >= chars.length) {
+            report(new Diagnostic(Diagnostic.Kind.UNTERMINATED_BLOCK_COMMENT, start, 0));
+            return;
+        }
+
+        // The loop above stops having consumed the `*` of the closing `*/`
+        current++;
+    }
+
+    /**
+     * Builds the DFA one state at a time, with a column per ASCII char plus one for all other chars
+     */
+    private static final class Builder {
+        final List<int[]> rows = new ArrayList<>();
+        final List<Integer> accepts = new ArrayList<>();
+
+        int state(int accept) {
+            var row = new int[NON_ASCII + 1];
+            Arrays.fill(row, DEAD);
+            rows.add(row);
+            accepts.add(accept);
+            return rows.size() - 1;
+        }
+
+        /**
+         * A state inside an identifier, which every further identifier char takes to `identifier`, or
+         * keeps in this state if that's DEAD
+         */
+        int identifierState(int identifier) {
+            var state = state(IDENTIFIER.ordinal());
+            for (int c = 0; c < NON_ASCII; c++) {
+                if (Character.isAlphaNumeric((char) c)) on(state, c, identifier == DEAD ? state : identifier);
+            }
+            return state;
+        }
+
+        void on(int from, int c, int to) {
+            rows.get(from)[c] = to;
+        }
+
+        int next(int from, int c) {
+            return rows.get(from)[c];
+        }
+
+        /**
+         * The state reached from `from` by `chars`, adding non-accepting states where there are none yet
+         */
+        int path(int from, String chars) {
+            var state = from;
+            for (var c : chars.toCharArray()) {
+                var next = next(state, c);
+                if (next == DEAD) {
+                    next = state(REJECT);
+                    on(state, c, next);
+                }
+                state = next;
+            }
+            return state;
+        }
+
+        /**
+         * Fail loudly when a TokenType is added that no state produces
+         */
+        void checkCovers(Set<TokenType> producedElsewhere) {
+            for (var type : TYPES) {
+                if (!producedElsewhere.contains(type) && !accepts.contains(type.ordinal())) {
+                    throw new IllegalStateException("No spelling for " + type + " in DfaScanner or Keywords");
+                }
+            }
+        }
+
+        /**
+         * Group the columns that behave identically in every state into one char class each
+         */
+        int classify(byte[] classes) {
+            var representatives = new ArrayList<Integer>();
+            for (int c = 0; c <= NON_ASCII; c++) {
+                var found = -1;
+                for (int k = 0; k < representatives.size() && found < 0; k++) {
+                    if (sameColumn(c, representatives.get(k))) {
+                        found = k;
+                    }
+                }
+                if (found < 0) {
+                    found = representatives.size();
+                    representatives.add(c);
+                }
+                classes[c] = (byte) found;
+            }
+            return representatives.size();
+        }
+
+        private boolean sameColumn(int a, int b) {
+            for (var row : rows) {
+                if (row[a] != row[b]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int[] transitions(byte[] classes, int classCount) {
+            var table = new int[rows.size() * classCount];
+            for (int state = 0; state < rows.size(); state++) {
+                for (int c = 0; c <= NON_ASCII; c++) {
+                    table[state * classCount + classes[c]] = rows.get(state)[c];
+                }
+            }
+            return table;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.craftinginterpreters;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs every ScannerTest against DfaScanner, and checks it against Scanner on random sources
+ */
+class DfaScannerTest extends ScannerTest {
+
+    @TempDir
+    Path directory;
+
+    @Override
+    Lexer lexer(CharSequence source, ErrorReporter reporter) {
+        return new DfaScanner(source, reporter);
+    }
+
+    @Test
+    void testMatchesScanner() {
+        var pieces = List.of(" ", "\t", "\r\n", "\n", "// c\n", "/* b */", "/* /* n */ */", "/*", "*/", "\"s\"",
+                "\"a\nb\"", "\"", "0", "12", "12.", "12.5", ".5", "x", "_a1", "and", "andy", "or", "fun", "while",
+                "whil", "(", ")", "{", "}", ",", ".", "-", "+", ";", "*", "/", "!", "!=", "=", "==", "<", "<=", ">",
+                ">=", "@", "#", "\u00e9");
+        var random = new Random(20);
+        for (int i = 0; i < 5_000; i++) {
+            var source = new StringBuilder();
+            var count = random.nextInt(30);
+            for (int p = 0; p < count; p++) {
+                source.append(pieces.get(random.nextInt(pieces.size())));
+            }
+
+            var text = source.toString();
+            assertEquals(scanner(text), scanWithDiagnostics(text), text);
+            var mapped = new MappedSource(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+            assertEquals(scanner(mapped), scanWithDiagnostics(mapped), text);
+        }
+    }
+
+    @Test
+    void testReportsTheSameMetricsAsScanner() throws Exception {
+        // Metrics are fixed when the lexers load, so each engine runs in a JVM of its own
+        var script = Files.writeString(directory.resolve("script.lox"),
+                "var x = 12.5 + y; // done\n/* a /* b */ */ print \"s\" == nil and x;\n@# 3. \"open");
+        var scanner = metrics(script, "scanner");
+        var dfa = metrics(script, "dfa");
+
+        assertTrue(scanner.contains("\"tokens\":{"), scanner);
+        // Timings differ from run to run, every count should be the same
+        var timings = "\"sectionNanos\":\\{[^}]*\\}";
+        assertEquals(scanner.replaceAll(timings, ""), dfa.replaceAll(timings, ""));
+    }
+
+    private String metrics(Path script, String engine) throws Exception {
+        var json = directory.resolve(engine + ".json");
+        var classpath = Paths.get(Lox.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        var java = Paths.get(System.getProperty("java.home"), "bin", "java");
+
+        var process = new ProcessBuilder(java.toString(), "-Dlox.metrics=true", "-Dlox.metrics.json=" + json,
+                "-Dlox.lexer=" + engine, "-cp", classpath.toString(), "com.craftinginterpreters.Lox", script.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        assertEquals(65, process.waitFor());
+        return Files.readString(json);
+    }
+
+    @Test
+    void testSelectableAtRuntime() {
+        // Without -Dlox.lexer, the hand-written Scanner is used
+        assertEquals("scanner", Lexer.ENGINE);
+        assertInstanceOf(Scanner.class, Lexer.create("1", new CollectingErrorReporter()));
+    }
+
+    private List<String> scanner(CharSequence source) {
+        return new ScannerTest().scanWithDiagnostics(source);
+    }
+}
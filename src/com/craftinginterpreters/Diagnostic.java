@@ -0,0 +1,96 @@
+package com.craftinginterpreters;
+
+/**
+ * One error found in a Lox source.
+ *
+ * Only the raw facts are recorded when the error is found. The message text is built by message() or
+ * toString(), so a reporter that drops or just counts diagnostics never pays for formatting them.
+ */
+public final class Diagnostic {
+    public enum Kind {
+        UNEXPECTED_CHARACTER,
+        UNTERMINATED_STRING,
+        UNTERMINATED_BLOCK_COMMENT,
+        TOO_MANY_ERRORS,
+        EXPECT_EXPRESSION,
+        EXPECT_RIGHT_PAREN,
+        EXPECT_END_OF_EXPRESSION,
+    }
+
+    final Kind kind;
+    // Offset in the source where the offending lexeme, string, comment or token starts
+    final int offset;
+    // Kind specific detail, e.g. the unexpected character
+    final int detail;
+    // Length of the offending range of source, or 0 where only its start is known
+    final int length;
+
+    Diagnostic(Kind kind, int offset, int detail) {
+        this(kind, offset, detail, 0);
+    }
+
+    Diagnostic(Kind kind, int offset, int detail, int length) {
+        this.kind = kind;
+        this.offset = offset;
+        this.detail = detail;
+        this.length = length;
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public String message() {
+        switch (kind) {
+            case UNEXPECTED_CHARACTER:
+                // A run of unexpected characters is reported once, by its first
+                var character = "Unexpected character " + printable(detail);
+                return length > 1 ? character + ", and " + (length - 1) + " more" : character;
+            case UNTERMINATED_STRING:
+                return "Unterminated string literal starting at source char " + offset;
+            case UNTERMINATED_BLOCK_COMMENT:
+                return "Unterminated block comment starting at source char " + offset;
+            case TOO_MANY_ERRORS:
+                return "Too many errors, stopped scanning at source char " + offset;
+            case EXPECT_EXPRESSION:
+                return "Expect expression.";
+            case EXPECT_RIGHT_PAREN:
+                return "Expect ')' after expression.";
+            case EXPECT_END_OF_EXPRESSION:
+                return "Expect end of expression.";
+            default:
+                throw new IllegalStateException("Unknown diagnostic kind " + kind);
+        }
+    }
+
+    /**
+     * The char itself if it's printable ASCII, otherwise its escape, so that binary input can't garble
+     * the terminal it's reported to
+     */
+    private static String printable(int c) {
+        return c >= ' ' && c < 0x7F ? String.valueOf((char) c) : String.format("\\u%04x", c);
+    }
+
+    /**
+     * Where the error is, as a source offset: the line is only known given the source, see toString(LineMap)
+     */
+    @Override
+    public String toString() {
+        return "[char " + offset + "] Error: " + message();
+    }
+
+    /**
+     * The line and column the error starts at, looked up in the source's LineMap, and the message
+     */
+    public String toString(LineMap lines) {
+        return "[line " + lines.line(offset) + ":" + lines.column(offset) + "] Error: " + message();
+    }
+}
@@ -0,0 +1,13 @@
+package com.craftinginterpreters;
+
+/**
+ * Where the front end sends the errors it finds in a source.
+ *
+ * A reporter belongs to one run over one source, so concurrent runs each get their own and never see
+ * each other's errors.
+ */
+public interface ErrorReporter {
+    void report(Diagnostic diagnostic);
+
+    boolean hadError();
+}
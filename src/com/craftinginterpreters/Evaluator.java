@@ -0,0 +1,189 @@
+package com.craftinginterpreters;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * Evaluates expressions to their Lox values: Double, String, Boolean, or null for nil.
+ *
+ * This is the reference implementation of Lox's expression semantics. Every intermediate result is an
+ * Object, so numbers are boxed on the way up the tree. Trees are walked with an explicit stack rather
+ * than recursion, so any tree the Parser can build can be evaluated. Each node on the stack is visited
+ * through Expr.Visitor, which picks the step to take for its type.
+ */
+class Evaluator {
+
+    /**
+     * The value of `expr`, evaluating operands left to right as a recursive walk would
+     */
+    Object evaluate(Expr expr) {
+        return new Walk().run(expr);
+    }
+
+    /**
+     * The explicit stack of one evaluate() call. Visiting the node on top of `pending` takes one step for
+     * it: a literal's value is pushed, a grouping is replaced by its expression, and an operator pushes
+     * its operands the first time, then is applied to their values the second.
+     */
+    private static final class Walk implements Expr.Visitor<Void> {
+        private final ArrayDeque<Expr> pending = new ArrayDeque<>();
+        // Whether the node at each depth of `pending` has had its operands pushed yet
+        private final BitSet expanded = new BitSet();
+        // Values of the operands evaluated so far whose operators haven't been, last operand on top.
+        // Not an ArrayDeque, which can't hold the null that nil evaluates to.
+        private final ArrayList<Object> values = new ArrayList<>();
+
+        Object run(Expr expr) {
+            pending.push(expr);
+            while (!pending.isEmpty()) {
+                pending.peek().accept(this);
+            }
+            return values.get(0);
+        }
+
+        @Override
+        public Void visitBinaryExpr(Expr.Binary expr) {
+            if (expand()) {
+                // Operands are pushed last to first, so the first is evaluated first
+                pending.push(expr.right);
+                pending.push(expr.left);
+                return null;
+            }
+            finish();
+            var right = values.remove(values.size() - 1);
+            var left = values.remove(values.size() - 1);
+            values.add(binary(expr.operator, left, right));
+            return null;
+        }
+
+        @Override
+        public Void visitGroupingExpr(Expr.Grouping expr) {
+            // A grouping's value is its expression's, so evaluate that in its place
+            finish();
+            pending.push(expr.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitLiteralExpr(Expr.Literal expr) {
+            finish();
+            values.add(expr.value);
+            return null;
+        }
+
+        @Override
+        public Void visitUnaryExpr(Expr.Unary expr) {
+            if (expand()) {
+                pending.push(expr.right);
+                return null;
+            }
+            finish();
+            values.add(unary(expr.operator, values.remove(values.size() - 1)));
+            return null;
+        }
+
+        /**
+         * Mark the node on top as expanded, returning false if it already was
+         */
+        private boolean expand() {
+            var depth = pending.size() - 1;
+            if (expanded.get(depth)) {
+                return false;
+            }
+            expanded.set(depth);
+            return true;
+        }
+
+        /**
+         * Pop the node on top, which is done with, leaving its depth unexpanded for the next one
+         */
+        private void finish() {
+            expanded.clear(pending.size() - 1);
+            pending.pop();
+        }
+    }
+
+    /**
+     * Apply a binary operator to the values of its operands
+     */
+    static Object binary(Token operator, Object left, Object right) {
+        switch (operator.type) {
+            case GREATER:
+                checkNumberOperands(operator, left, right);
+                return (double) left > (double) right;
+            case GREATER_EQUAL:
+                checkNumberOperands(operator, left, right);
+                return (double) left >= (double) right;
+            case LESS:
+                checkNumberOperands(operator, left, right);
+                return (double) left < (double) right;
+            case LESS_EQUAL:
+                checkNumberOperands(operator, left, right);
+                return (double) left <= (double) right;
+            case BANG_EQUAL:
+                return !isEqual(left, right);
+            case EQUAL_EQUAL:
+                return isEqual(left, right);
+            case MINUS:
+                checkNumberOperands(operator, left, right);
+                return (double) left - (double) right;
+            case PLUS:
+                if (left instanceof Double && right instanceof Double) {
+                    return (double) left + (double) right;
+                }
+                if (left instanceof String && right instanceof String) {
+                    return (String) left + (String) right;
+                }
+                throw new RuntimeError(operator, "Operands must be two numbers or two strings.");
+            case SLASH:
+                checkNumberOperands(operator, left, right);
+                return (double) left / (double) right;
+            case STAR:
+                checkNumberOperands(operator, left, right);
+                return (double) left * (double) right;
+            default:
+                throw new RuntimeError(operator, "Unknown binary operator.");
+        }
+    }
+
+    /**
+     * Apply a unary operator to the value of its operand
+     */
+    static Object unary(Token operator, Object right) {
+        switch (operator.type) {
+            case BANG:
+                return !isTruthy(right);
+            case MINUS:
+                checkNumberOperand(operator, right);
+                return -(double) right;
+            default:
+                throw new RuntimeError(operator, "Unknown unary operator.");
+        }
+    }
+
+    /**
+     * false and nil are falsey, everything else is truthy
+     */
+    static boolean isTruthy(Object value) {
+        if (value == null) return false;
+        if (value instanceof Boolean) return (boolean) value;
+        return true;
+    }
+
+    static boolean isEqual(Object a, Object b) {
+        if (a == null && b == null) return true;
+        if (a == null) return false;
+        return a.equals(b);
+    }
+
+    static void checkNumberOperand(Token operator, Object operand) {
+        if (operand instanceof Double) return;
+        throw new RuntimeError(operator, "Operand must be a number.");
+    }
+
+    static void checkNumberOperands(Token operator, Object left, Object right) {
+        if (left instanceof Double && right instanceof Double) return;
+        throw new RuntimeError(operator, "Operands must be numbers.");
+    }
+}
@@ -0,0 +1,162 @@
+package com.craftinginterpreters;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluatorTest {
+
+    private static final List<TokenType> BINARY_OPERATORS = List.of(
+            TokenType.PLUS, TokenType.MINUS, TokenType.STAR, TokenType.SLASH,
+            TokenType.GREATER, TokenType.GREATER_EQUAL, TokenType.LESS, TokenType.LESS_EQUAL,
+            TokenType.EQUAL_EQUAL, TokenType.BANG_EQUAL
+    );
+
+    @Test
+    void testArithmetic() {
+        // (1 + 2) * (3 - -4)
+        var expr = binary(
+                new Expr.Grouping(binary(literal(1.), TokenType.PLUS, literal(2.))),
+                TokenType.STAR,
+                new Expr.Grouping(binary(literal(3.), TokenType.MINUS, unary(TokenType.MINUS, literal(4.)))));
+        assertEquals(21., new Evaluator().evaluate(expr));
+        assertEquals(21., new UnboxedEvaluator().evaluateNumber(expr));
+    }
+
+    @Test
+    void testStringConcatenationAndEquality() {
+        var concat = binary(literal("foo"), TokenType.PLUS, literal("bar"));
+        assertEquals("foobar", new Evaluator().evaluate(concat));
+        assertEquals(true, new Evaluator().evaluate(binary(concat, TokenType.EQUAL_EQUAL, literal("foobar"))));
+        assertEquals(false, new Evaluator().evaluate(binary(literal(null), TokenType.EQUAL_EQUAL, literal(false))));
+        assertTrue(new UnboxedEvaluator().evaluateCondition(concat));
+    }
+
+    @Test
+    void testTruthiness() {
+        assertEquals(true, new Evaluator().evaluate(unary(TokenType.BANG, literal(null))));
+        assertEquals(true, new Evaluator().evaluate(unary(TokenType.BANG, literal(false))));
+        assertEquals(false, new Evaluator().evaluate(unary(TokenType.BANG, literal(0.))));
+        assertEquals(false, new Evaluator().evaluate(unary(TokenType.BANG, literal(""))));
+    }
+
+    @Test
+    void testTypeErrors() {
+        var error = assertThrows(RuntimeError.class,
+                () -> new Evaluator().evaluate(binary(literal("a"), TokenType.PLUS, literal(1.))));
+        assertEquals("Operands must be two numbers or two strings.", error.getMessage());
+        assertEquals(TokenType.PLUS, error.token.type);
+
+        error = assertThrows(RuntimeError.class,
+                () -> new Evaluator().evaluate(unary(TokenType.MINUS, literal(true))));
+        assertEquals("Operand must be a number.", error.getMessage());
+    }
+
+    @Test
+    void testUnboxedMatchesBoxed() {
+        var random = new Random(3);
+        for (int i = 0; i < 20_000; i++) {
+            var expr = randomExpr(random, 5);
+            Object expected;
+            try {
+                expected = new Evaluator().evaluate(expr);
+            } catch (RuntimeError error) {
+                expected = error;
+            }
+
+            if (expected instanceof RuntimeError) {
+                var expectedError = (RuntimeError) expected;
+                var actual = assertThrows(RuntimeError.class, () -> new UnboxedEvaluator().evaluateCondition(expr));
+                assertEquals(expectedError.getMessage(), actual.getMessage());
+                assertSame(expectedError.token, actual.token);
+                continue;
+            }
+
+            assertEquals(Evaluator.isTruthy(expected), new UnboxedEvaluator().evaluateCondition(expr));
+            if (expected instanceof Double) {
+                assertEquals((double) expected, new UnboxedEvaluator().evaluateNumber(expr));
+            } else {
+                assertThrows(RuntimeError.class, () -> new UnboxedEvaluator().evaluateNumber(expr));
+            }
+        }
+    }
+
+    @Test
+    void testDeepTreesDoNotOverflowTheStack() {
+        var depth = 100_000;
+        var reporter = new CollectingErrorReporter();
+        var nested = new Parser(new Scanner("(".repeat(depth) + "1" + ")".repeat(depth)), reporter).parse();
+        var chain = new Parser(new Scanner("1" + " + 1".repeat(depth)), reporter).parse();
+        var negated = new Parser(new Scanner("!".repeat(depth) + "nil"), reporter).parse();
+        assertFalse(reporter.hadError());
+
+        assertEquals(1., new Evaluator().evaluate(nested));
+        assertEquals(depth + 1., new Evaluator().evaluate(chain));
+        assertEquals(false, new Evaluator().evaluate(negated));
+
+        // Past MAX_DEPTH the unboxed visitors hand the rest of the tree to the boxed Evaluator
+        assertTrue(depth > UnboxedEvaluator.MAX_DEPTH);
+        assertEquals(1., new UnboxedEvaluator().evaluateNumber(nested));
+        assertEquals(depth + 1., new UnboxedEvaluator().evaluateNumber(chain));
+        assertFalse(new UnboxedEvaluator().evaluateCondition(negated));
+        assertTrue(new UnboxedEvaluator().evaluateCondition(chain));
+    }
+
+    @Test
+    void testUnboxedMatchesBoxedAcrossMaxDepth() {
+        // A string at the bottom of a chain deeper than MAX_DEPTH, so the boxed fallback decides the result
+        var chain = literal("a");
+        for (int i = 0; i < 2 * UnboxedEvaluator.MAX_DEPTH; i++) {
+            chain = binary(chain, TokenType.PLUS, literal("b"));
+        }
+        var concat = chain;
+        assertEquals("a" + "b".repeat(2 * UnboxedEvaluator.MAX_DEPTH), new Evaluator().evaluate(concat));
+        assertTrue(new UnboxedEvaluator().evaluateCondition(concat));
+        assertThrows(RuntimeError.class, () -> new UnboxedEvaluator().evaluateNumber(concat));
+
+        var mixed = binary(concat, TokenType.MINUS, literal(1.));
+        var error = assertThrows(RuntimeError.class, () -> new UnboxedEvaluator().evaluateCondition(mixed));
+        assertEquals("Operands must be numbers.", error.getMessage());
+        assertEquals(TokenType.MINUS, error.token.type);
+    }
+
+    static Expr randomExpr(Random random, int depth) {
+        var choice = depth == 0 ? 0 : random.nextInt(10);
+        if (choice == 0) {
+            switch (random.nextInt(8)) {
+                case 0: return literal(null);
+                case 1: return literal(random.nextBoolean());
+                case 2: return literal(random.nextBoolean() ? "a" : "b");
+                case 3: return literal(0.);
+                case 4: return literal(-0.);
+                default: return literal((double) random.nextInt(5));
+            }
+        }
+        if (choice == 1) {
+            return new Expr.Grouping(randomExpr(random, depth - 1));
+        }
+        if (choice < 4) {
+            return unary(random.nextBoolean() ? TokenType.MINUS : TokenType.BANG, randomExpr(random, depth - 1));
+        }
+        // Mostly arithmetic, so that the unboxed paths get exercised
+        var operator = random.nextInt(3) > 0
+                ? BINARY_OPERATORS.get(random.nextInt(4))
+                : BINARY_OPERATORS.get(random.nextInt(BINARY_OPERATORS.size()));
+        return binary(randomExpr(random, depth - 1), operator, randomExpr(random, depth - 1));
+    }
+
+    static Expr literal(Object value) {
+        return new Expr.Literal(value);
+    }
+
+    static Expr unary(TokenType operator, Expr right) {
+        return new Expr.Unary(new Token(operator, operator == TokenType.MINUS ? "-" : "!", null), right);
+    }
+
+    static Expr binary(Expr left, TokenType operator, Expr right) {
+        return new Expr.Binary(left, new Token(operator, operator.name(), null), right);
+    }
+}
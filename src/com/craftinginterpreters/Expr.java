@@ -1,38 +1,303 @@
 package com.craftinginterpreters;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
 abstract class Expr {
-    class Binary extends Expr {
+    interface Visitor<R> {
+        R visitBinaryExpr(Binary expr);
+        R visitGroupingExpr(Grouping expr);
+        R visitLiteralExpr(Literal expr);
+        R visitUnaryExpr(Unary expr);
+    }
+
+    interface DoubleVisitor {
+        double visitBinaryExpr(Binary expr);
+        double visitGroupingExpr(Grouping expr);
+        double visitLiteralExpr(Literal expr);
+        double visitUnaryExpr(Unary expr);
+    }
+
+    interface BooleanVisitor {
+        boolean visitBinaryExpr(Binary expr);
+        boolean visitGroupingExpr(Grouping expr);
+        boolean visitLiteralExpr(Literal expr);
+        boolean visitUnaryExpr(Unary expr);
+    }
+
+    static class Binary extends Expr {
         Binary(Expr left, Token operator, Expr right) {
             this.left = left;
             this.operator = operator;
             this.right = right;
         }
 
+        @Override
+        <R> R accept(Visitor<R> visitor) {
+            return visitor.visitBinaryExpr(this);
+        }
+
+        @Override
+        double acceptDouble(DoubleVisitor visitor) {
+            return visitor.visitBinaryExpr(this);
+        }
+
+        @Override
+        boolean acceptBoolean(BooleanVisitor visitor) {
+            return visitor.visitBinaryExpr(this);
+        }
+
+        @Override
+        boolean equalFields(Expr o, List<Expr> pending) {
+            if (!(o instanceof Binary)) return false;
+            var other = (Binary) o;
+            if (!Objects.equals(operator, other.operator)) return false;
+            pending.add(left);
+            pending.add(other.left);
+            pending.add(right);
+            pending.add(other.right);
+            return true;
+        }
+
+        @Override
+        int hashFields() {
+            return Objects.hash(left, operator, right);
+        }
+
+        @Override
+        boolean pushUnhashedChildren(List<Expr> pending) {
+            var pushed = false;
+            if (left != null && !left.isHashed()) {
+                pending.add(left);
+                pushed = true;
+            }
+            if (right != null && !right.isHashed()) {
+                pending.add(right);
+                pushed = true;
+            }
+            return pushed;
+        }
+
         final Expr left;
         final Token operator;
         final Expr right;
     }
-    class Grouping extends Expr {
+    static class Grouping extends Expr {
         Grouping(Expr expression) {
             this.expression = expression;
         }
 
+        @Override
+        <R> R accept(Visitor<R> visitor) {
+            return visitor.visitGroupingExpr(this);
+        }
+
+        @Override
+        double acceptDouble(DoubleVisitor visitor) {
+            return visitor.visitGroupingExpr(this);
+        }
+
+        @Override
+        boolean acceptBoolean(BooleanVisitor visitor) {
+            return visitor.visitGroupingExpr(this);
+        }
+
+        @Override
+        boolean equalFields(Expr o, List<Expr> pending) {
+            if (!(o instanceof Grouping)) return false;
+            var other = (Grouping) o;
+            pending.add(expression);
+            pending.add(other.expression);
+            return true;
+        }
+
+        @Override
+        int hashFields() {
+            return Objects.hash(expression);
+        }
+
+        @Override
+        boolean pushUnhashedChildren(List<Expr> pending) {
+            var pushed = false;
+            if (expression != null && !expression.isHashed()) {
+                pending.add(expression);
+                pushed = true;
+            }
+            return pushed;
+        }
+
         final Expr expression;
     }
-    class Literal extends Expr {
+    static class Literal extends Expr {
         Literal(Object value) {
             this.value = value;
         }
 
+        @Override
+        <R> R accept(Visitor<R> visitor) {
+            return visitor.visitLiteralExpr(this);
+        }
+
+        @Override
+        double acceptDouble(DoubleVisitor visitor) {
+            return visitor.visitLiteralExpr(this);
+        }
+
+        @Override
+        boolean acceptBoolean(BooleanVisitor visitor) {
+            return visitor.visitLiteralExpr(this);
+        }
+
+        @Override
+        boolean equalFields(Expr o, List<Expr> pending) {
+            if (!(o instanceof Literal)) return false;
+            var other = (Literal) o;
+            if (!Objects.equals(value, other.value)) return false;
+            return true;
+        }
+
+        @Override
+        int hashFields() {
+            return Objects.hash(value);
+        }
+
+        @Override
+        boolean pushUnhashedChildren(List<Expr> pending) {
+            return false;
+        }
+
         final Object value;
     }
-    class Unary extends Expr {
+    static class Unary extends Expr {
         Unary(Token operator, Expr right) {
             this.operator = operator;
             this.right = right;
         }
 
+        @Override
+        <R> R accept(Visitor<R> visitor) {
+            return visitor.visitUnaryExpr(this);
+        }
+
+        @Override
+        double acceptDouble(DoubleVisitor visitor) {
+            return visitor.visitUnaryExpr(this);
+        }
+
+        @Override
+        boolean acceptBoolean(BooleanVisitor visitor) {
+            return visitor.visitUnaryExpr(this);
+        }
+
+        @Override
+        boolean equalFields(Expr o, List<Expr> pending) {
+            if (!(o instanceof Unary)) return false;
+            var other = (Unary) o;
+            if (!Objects.equals(operator, other.operator)) return false;
+            pending.add(right);
+            pending.add(other.right);
+            return true;
+        }
+
+        @Override
+        int hashFields() {
+            return Objects.hash(operator, right);
+        }
+
+        @Override
+        boolean pushUnhashedChildren(List<Expr> pending) {
+            var pushed = false;
+            if (right != null && !right.isHashed()) {
+                pending.add(right);
+                pushed = true;
+            }
+            return pushed;
+        }
+
         final Token operator;
         final Expr right;
     }
+
+    abstract <R> R accept(Visitor<R> visitor);
+    abstract double acceptDouble(DoubleVisitor visitor);
+    abstract boolean acceptBoolean(BooleanVisitor visitor);
+
+    /**
+     * Structural equality, compared without recursion so that trees of any depth can be compared
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Expr)) return false;
+        // Pairs of nodes still to compare, the pair to compare next on top
+        List<Expr> pending = new ArrayList<>();
+        pending.add(this);
+        pending.add((Expr) o);
+        while (!pending.isEmpty()) {
+            var b = pending.remove(pending.size() - 1);
+            var a = pending.remove(pending.size() - 1);
+            if (a == b) continue;
+            if (a == null || b == null) return false;
+            // Only compare hashes already computed, rather than hash both trees just to compare them
+            if (a.isHashed() && b.isHashed() && a.hash != b.hash) return false;
+            if (!a.equalFields(b, pending)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Whether `o` is the same type of node with equal fields, other than its children. Each pair of
+     * children still to compare is added to `pending`.
+     */
+    abstract boolean equalFields(Expr o, List<Expr> pending);
+
+    /**
+     * Structural hash, computed on first use and without recursion so that trees of any depth can be hashed
+     */
+    @Override
+    public int hashCode() {
+        if (!isHashed()) {
+            // Nodes still to hash, each on top of its parent
+            List<Expr> pending = new ArrayList<>();
+            pending.add(this);
+            while (!pending.isEmpty()) {
+                var node = pending.get(pending.size() - 1);
+                if (node.isHashed()) {
+                    pending.remove(pending.size() - 1);
+                    continue;
+                }
+                if (node.pushUnhashedChildren(pending)) continue;
+                var hash = node.hashFields();
+                if (hash == 0) {
+                    node.hashIsZero = true;
+                } else {
+                    node.hash = hash;
+                }
+                pending.remove(pending.size() - 1);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Whether hashCode() has already been computed. As in String, a hash of 0 is flagged separately, so
+     * a racing thread at worst recomputes it.
+     */
+    boolean isHashed() {
+        return hash != 0 || hashIsZero;
+    }
+
+    /**
+     * The hash of this node's fields, only called once its children are hashed
+     */
+    abstract int hashFields();
+
+    /**
+     * Add each child that hasn't been hashed yet to `pending`, returning whether there were any
+     */
+    abstract boolean pushUnhashedChildren(List<Expr> pending);
+
+    private int hash;
+    private boolean hashIsZero;
 }
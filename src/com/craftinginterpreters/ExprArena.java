@@ -0,0 +1,277 @@
+package com.craftinginterpreters;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A flat, index based alternative to Expr trees, generated by tool/GenerateAst.
+ *
+ * Nodes live in parallel primitive arrays: a kind and 3 int slots per node. Child nodes, tokens
+ * and literals are referred to by index, and children always come before their parents.
+ */
+final class ExprArena {
+    static final byte BINARY = 0;
+    static final byte GROUPING = 1;
+    static final byte LITERAL = 2;
+    static final byte UNARY = 3;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int size = 0;
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    private int[] slot0 = new int[INITIAL_CAPACITY];
+    private int[] slot1 = new int[INITIAL_CAPACITY];
+    private int[] slot2 = new int[INITIAL_CAPACITY];
+    private final List<Token> tokens = new ArrayList<>();
+    private final List<Object> literals = new ArrayList<>();
+
+    int size() {
+        return size;
+    }
+
+    byte kind(int node) {
+        if (node < 0 || node >= size) {
+            throw new IndexOutOfBoundsException("Node " + node + " out of bounds for size " + size);
+        }
+        return kinds[node];
+    }
+
+    int binary(int left, Token operator, int right) {
+        checkChild(left);
+        checkChild(right);
+        var node = add(BINARY);
+        slot0[node] = left;
+        slot1[node] = addToken(operator);
+        slot2[node] = right;
+        return node;
+    }
+
+    int binaryLeft(int node) {
+        return slot0[check(node, BINARY)];
+    }
+
+    Token binaryOperator(int node) {
+        return tokens.get(slot1[check(node, BINARY)]);
+    }
+
+    int binaryRight(int node) {
+        return slot2[check(node, BINARY)];
+    }
+
+    int grouping(int expression) {
+        checkChild(expression);
+        var node = add(GROUPING);
+        slot0[node] = expression;
+        return node;
+    }
+
+    int groupingExpression(int node) {
+        return slot0[check(node, GROUPING)];
+    }
+
+    int literal(Object value) {
+        var node = add(LITERAL);
+        slot0[node] = addLiteral(value);
+        return node;
+    }
+
+    Object literalValue(int node) {
+        return literals.get(slot0[check(node, LITERAL)]);
+    }
+
+    int unary(Token operator, int right) {
+        checkChild(right);
+        var node = add(UNARY);
+        slot0[node] = addToken(operator);
+        slot1[node] = right;
+        return node;
+    }
+
+    Token unaryOperator(int node) {
+        return tokens.get(slot0[check(node, UNARY)]);
+    }
+
+    int unaryRight(int node) {
+        return slot1[check(node, UNARY)];
+    }
+
+    /**
+     * Build the Expr tree rooted at `root`, without recursion. Only the nodes reachable from `root`
+     * are visited, and a node shared by several parents is built once.
+     */
+    Expr toExpr(int root) {
+        kind(root);
+        var pending = new int[16];
+        var pendingCount = 0;
+        // Whether the node at each depth of `pending` has had its children pushed yet
+        var expanded = new BitSet();
+        // Trees built so far whose parents haven't been, last child on top
+        var built = new ArrayList<Expr>();
+        // Every node built so far, by index
+        var done = new HashMap<Integer, Expr>();
+
+        pending[pendingCount++] = root;
+        while (pendingCount > 0) {
+            var depth = pendingCount - 1;
+            var node = pending[depth];
+            var existing = done.get(node);
+            if (existing != null) {
+                pendingCount--;
+                built.add(existing);
+                continue;
+            }
+            if (!expanded.get(depth)) {
+                expanded.set(depth);
+                if (pendingCount + 2 > pending.length) {
+                    pending = Arrays.copyOf(pending, pending.length * 2);
+                }
+                // Children are pushed last to first, so the first is built first
+                switch (kinds[node]) {
+                    case BINARY:
+                        pending[pendingCount++] = slot2[node];
+                        pending[pendingCount++] = slot0[node];
+                        break;
+                    case GROUPING:
+                        pending[pendingCount++] = slot0[node];
+                        break;
+                    case UNARY:
+                        pending[pendingCount++] = slot1[node];
+                        break;
+                }
+                expanded.clear(depth + 1, pendingCount);
+                continue;
+            }
+
+            pendingCount--;
+            Expr expr;
+            switch (kinds[node]) {
+                case BINARY: {
+                    var right = built.remove(built.size() - 1);
+                    var left = built.remove(built.size() - 1);
+                    expr = new Expr.Binary(left, tokens.get(slot1[node]), right);
+                    break;
+                }
+                case GROUPING: {
+                    var expression = built.remove(built.size() - 1);
+                    expr = new Expr.Grouping(expression);
+                    break;
+                }
+                case LITERAL: {
+                    expr = new Expr.Literal(literals.get(slot0[node]));
+                    break;
+                }
+                case UNARY: {
+                    var right = built.remove(built.size() - 1);
+                    expr = new Expr.Unary(tokens.get(slot0[node]), right);
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unknown node kind " + kinds[node]);
+            }
+            done.put(node, expr);
+            built.add(expr);
+        }
+        return built.get(0);
+    }
+
+    /**
+     * Add a copy of the Expr tree `expr` to this arena, returning the index of its root.
+     * Walks the tree with an explicit stack rather than recursion, so any depth can be copied.
+     */
+    int fromExpr(Expr expr) {
+        var pending = new ArrayDeque<Expr>();
+        // Whether the node at each depth of `pending` has had its children pushed yet
+        var expanded = new BitSet();
+        // Indices of the nodes added so far whose parents haven't been, last child on top
+        var added = new int[16];
+        var addedCount = 0;
+
+        pending.push(expr);
+        while (!pending.isEmpty()) {
+            var depth = pending.size() - 1;
+            var node = pending.peek();
+            if (!expanded.get(depth)) {
+                expanded.set(depth);
+                // Children are pushed last to first, so the first is added first and gets the smaller index
+                if (node instanceof Expr.Binary) {
+                    var binary = (Expr.Binary) node;
+                    pending.push(binary.right);
+                    pending.push(binary.left);
+                } else if (node instanceof Expr.Grouping) {
+                    var grouping = (Expr.Grouping) node;
+                    pending.push(grouping.expression);
+                } else if (node instanceof Expr.Unary) {
+                    var unary = (Expr.Unary) node;
+                    pending.push(unary.right);
+                }
+                expanded.clear(depth + 1, pending.size());
+                continue;
+            }
+
+            pending.pop();
+            int index;
+            if (node instanceof Expr.Binary) {
+                var binary = (Expr.Binary) node;
+                var right = added[--addedCount];
+                var left = added[--addedCount];
+                index = binary(left, binary.operator, right);
+            } else if (node instanceof Expr.Grouping) {
+                var grouping = (Expr.Grouping) node;
+                var expression = added[--addedCount];
+                index = grouping(expression);
+            } else if (node instanceof Expr.Literal) {
+                var literal = (Expr.Literal) node;
+                index = literal(literal.value);
+            } else if (node instanceof Expr.Unary) {
+                var unary = (Expr.Unary) node;
+                var right = added[--addedCount];
+                index = unary(unary.operator, right);
+            } else {
+                throw new IllegalArgumentException("Unknown Expr type " + node.getClass().getName());
+            }
+            if (addedCount == added.length) {
+                added = Arrays.copyOf(added, addedCount * 2);
+            }
+            added[addedCount++] = index;
+        }
+        return added[0];
+    }
+
+    private int add(byte kind) {
+        if (size == kinds.length) {
+            kinds = Arrays.copyOf(kinds, size * 2);
+            slot0 = Arrays.copyOf(slot0, size * 2);
+            slot1 = Arrays.copyOf(slot1, size * 2);
+            slot2 = Arrays.copyOf(slot2, size * 2);
+        }
+        kinds[size] = kind;
+        return size++;
+    }
+
+    private void checkChild(int child) {
+        if (child < 0 || child >= size) {
+            throw new IllegalArgumentException("No node " + child + " in this arena");
+        }
+    }
+
+    private int check(int node, byte expected) {
+        if (kind(node) != expected) {
+            throw new IllegalArgumentException("Node " + node + " is of kind " + kinds[node] + ", not " + expected);
+        }
+        return node;
+    }
+
+    private int addToken(Token token) {
+        tokens.add(token);
+        return tokens.size() - 1;
+    }
+
+    private int addLiteral(Object literal) {
+        literals.add(literal);
+        return literals.size() - 1;
+    }
+}
@@ -0,0 +1,112 @@
+package com.craftinginterpreters;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExprArenaTest {
+
+    private static final Token MINUS = new Token(TokenType.MINUS, "-", null);
+    private static final Token STAR = new Token(TokenType.STAR, "*", null);
+    private static final Token PLUS = new Token(TokenType.PLUS, "+", null);
+
+    @Test
+    void testRoundTrip() {
+        // (1 + 2) * -"three"
+        var expr = new Expr.Binary(
+                new Expr.Grouping(new Expr.Binary(new Expr.Literal(1.), PLUS, new Expr.Literal(2.))),
+                STAR,
+                new Expr.Unary(MINUS, new Expr.Literal("three")));
+
+        var arena = new ExprArena();
+        var root = arena.fromExpr(expr);
+
+        assertEquals(7, arena.size());
+        assertEquals(ExprArena.BINARY, arena.kind(root));
+        assertSame(STAR, arena.binaryOperator(root));
+        assertEquals(ExprArena.GROUPING, arena.kind(arena.binaryLeft(root)));
+        assertEquals("three", arena.literalValue(arena.unaryRight(arena.binaryRight(root))));
+
+        assertEquals(print(expr), print(arena.toExpr(root)));
+    }
+
+    @Test
+    void testChildrenMustAlreadyExist() {
+        var arena = new ExprArena();
+        var one = arena.literal(1.);
+        assertThrows(IllegalArgumentException.class, () -> arena.binary(one, PLUS, one + 1));
+        assertThrows(IllegalArgumentException.class, () -> arena.groupingExpression(one));
+    }
+
+    @Test
+    void testToExprBuildsOnlyTheRootsSubtree() {
+        // Several roots in one arena, as for a compilation unit's expressions
+        var arena = new ExprArena();
+        var first = arena.unary(MINUS, arena.literal(1.));
+        var shared = arena.literal(2.);
+        var node = shared;
+        for (int i = 0; i < 100; i++) {
+            node = arena.binary(node, PLUS, node);
+        }
+
+        assertEquals("(- 1.0)", print(arena.toExpr(first)));
+        // A node with several parents is built once and shared, rather than once per path to it
+        var expr = (Expr.Binary) arena.toExpr(node);
+        assertSame(expr.left, expr.right);
+        assertSame(((Expr.Binary) expr.left).left, ((Expr.Binary) expr.left).right);
+    }
+
+    @Test
+    void testDeepTreeToExprDoesNotRecurse() {
+        var arena = new ExprArena();
+        var node = arena.literal(1.);
+        for (int i = 0; i < 200_000; i++) {
+            node = arena.grouping(arena.unary(MINUS, node));
+        }
+
+        var expr = arena.toExpr(node);
+        var depth = 0;
+        while (expr instanceof Expr.Grouping) {
+            expr = ((Expr.Unary) ((Expr.Grouping) expr).expression).right;
+            depth++;
+        }
+        assertEquals(200_000, depth);
+        assertEquals(1., ((Expr.Literal) expr).value);
+    }
+
+    @Test
+    void testDeepTreeFromExprDoesNotRecurse() {
+        var depth = 100_000;
+        var source = "1 + (".repeat(depth) + "-2" + ")".repeat(depth);
+        var expr = new Parser(new Scanner(source), new CollectingErrorReporter()).parse();
+
+        var arena = new ExprArena();
+        var root = arena.fromExpr(expr);
+        assertEquals(3 * depth + 2, arena.size());
+        // Children are added before their parents, left before right
+        assertEquals(ExprArena.LITERAL, arena.kind(0));
+        assertEquals(1., arena.literalValue(0));
+
+        var node = root;
+        for (int i = 0; i < depth; i++) {
+            assertEquals(1., arena.literalValue(arena.binaryLeft(node)));
+            node = arena.groupingExpression(arena.binaryRight(node));
+        }
+        assertEquals(2., arena.literalValue(arena.unaryRight(node)));
+    }
+
+    private static String print(Expr expr) {
+        if (expr instanceof Expr.Binary) {
+            var binary = (Expr.Binary) expr;
+            return "(" + binary.operator.lexeme + " " + print(binary.left) + " " + print(binary.right) + ")";
+        }
+        if (expr instanceof Expr.Grouping) {
+            return "(group " + print(((Expr.Grouping) expr).expression) + ")";
+        }
+        if (expr instanceof Expr.Unary) {
+            var unary = (Expr.Unary) expr;
+            return "(" + unary.operator.lexeme + " " + print(unary.right) + ")";
+        }
+        return String.valueOf(((Expr.Literal) expr).value);
+    }
+}
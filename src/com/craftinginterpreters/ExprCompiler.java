@@ -0,0 +1,704 @@
+package com.craftinginterpreters;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles an expression tree to JVM bytecode, defined as a hidden class, so that the JIT can optimize
+ * evaluating it like any other Java code. Results and RuntimeErrors are the same as the Evaluator's.
+ *
+ * Subtrees that can only ever evaluate to a number (number literals, and negation and arithmetic other
+ * than `+` over those) are compiled to straight primitive double instructions. Everything else calls a
+ * small static helper in Operators per node, which does Lox's type checks on boxed values. The helpers
+ * are tiny, so the JIT inlines them.
+ *
+ * The generated code never branches, which keeps the class file writer minimal: no labels, and no
+ * StackMapTable. Literal values and operator tokens the code needs are passed in as the hidden class's
+ * class data. Large trees are split across many methods, each small enough for HotSpot to JIT compile.
+ */
+class ExprCompiler {
+    // Nodes to inline into one method before compiling the remaining subtrees into methods of their own.
+    // That keeps every method under the 8000 bytes of bytecode HotSpot will JIT compile.
+    private static final int MAX_INLINE_NODES = 250;
+
+    private static final String CLASS_NAME = "com/craftinginterpreters/CompiledExpr$Generated";
+    private static final String OPERATORS = "com/craftinginterpreters/ExprCompiler$Operators";
+    private static final String TOKEN = "com/craftinginterpreters/Token";
+    private static final String OBJECT = "java/lang/Object";
+    private static final String CONSTANTS = "K";
+    private static final String CONSTANTS_DESCRIPTOR = "[Ljava/lang/Object;";
+
+    // Opcodes
+    private static final int ACONST_NULL = 0x01;
+    private static final int DCONST_0 = 0x0e;
+    private static final int DCONST_1 = 0x0f;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int AALOAD = 0x32;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DDIV = 0x6f;
+    private static final int DNEG = 0x77;
+    private static final int ISHL = 0x78;
+    private static final int IOR = 0x80;
+    private static final int DRETURN = 0xaf;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int GETSTATIC = 0xb2;
+    private static final int PUTSTATIC = 0xb3;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int CHECKCAST = 0xc0;
+
+    // Access flags
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private final ConstantPool pool = new ConstantPool();
+    // The class data: literal values and operator tokens, loaded by index from the static K array
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Object, Integer> constantIndexes = new IdentityHashMap<>();
+    // Subtrees that always evaluate to a number. Trees can share subtrees, so they're only analyzed once.
+    private final Set<Expr> analyzed = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Expr> numbers = Collections.newSetFromMap(new IdentityHashMap<>());
+    // Subtrees compiled into methods of their own, by method name. Shared subtrees only get one.
+    private final Map<Expr, String> methodNames = new IdentityHashMap<>();
+    private final ArrayDeque<Expr> pending = new ArrayDeque<>();
+
+    // The tree the method being generated evaluates, and how many of its nodes it has inlined so far
+    private Expr methodRoot;
+    private int inlined;
+
+    private ExprCompiler() {
+    }
+
+    static CompiledExpr compile(Expr expr) {
+        return new ExprCompiler().define(expr);
+    }
+
+    private CompiledExpr define(Expr root) {
+        analyze(root);
+
+        var methods = new ArrayList<Bytes>();
+        methods.add(method(ACC_PUBLIC, "<init>", "()V", constructor(), 1));
+        methods.add(method(ACC_STATIC, "<clinit>", "()V", classInitializer(), 0));
+
+        var evaluate = startMethod(root);
+        emitObject(evaluate, root);
+        evaluate.op(ARETURN, -1);
+        methods.add(method(ACC_PUBLIC, "evaluate", "()Ljava/lang/Object;", evaluate, 1));
+
+        while (!pending.isEmpty()) {
+            var expr = pending.poll();
+            var code = startMethod(expr);
+            if (numbers.contains(expr)) {
+                emitDouble(code, expr);
+                code.op(DRETURN, -2);
+            } else {
+                emitObject(code, expr);
+                code.op(ARETURN, -1);
+            }
+            methods.add(method(ACC_PRIVATE | ACC_STATIC, methodNames.get(expr), descriptor(expr), code, 0));
+        }
+
+        var bytes = classFile(methods);
+        try {
+            var lookup = MethodHandles.lookup().defineHiddenClassWithClassData(bytes, constants.toArray(), true);
+            var constructor = lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class));
+            return (CompiledExpr) constructor.invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to define compiled expression", e);
+        }
+    }
+
+    /**
+     * Find the subtrees that always evaluate to a number. A post-order walk over an explicit stack, as in
+     * ExprArena.fromExpr, so trees of any depth can be analyzed.
+     */
+    private void analyze(Expr root) {
+        var unanalyzed = new ArrayDeque<Expr>();
+        // Whether the node at each depth of `unanalyzed` has had its children pushed yet
+        var expanded = new BitSet();
+
+        unanalyzed.push(root);
+        while (!unanalyzed.isEmpty()) {
+            var depth = unanalyzed.size() - 1;
+            var expr = unanalyzed.peek();
+            if (analyzed.contains(expr)) {
+                // A shared subtree, already analyzed through another parent
+                unanalyzed.pop();
+                continue;
+            }
+            if (!expanded.get(depth)) {
+                expanded.set(depth);
+                if (expr instanceof Expr.Grouping) {
+                    unanalyzed.push(((Expr.Grouping) expr).expression);
+                } else if (expr instanceof Expr.Unary) {
+                    unanalyzed.push(((Expr.Unary) expr).right);
+                } else if (expr instanceof Expr.Binary) {
+                    unanalyzed.push(((Expr.Binary) expr).right);
+                    unanalyzed.push(((Expr.Binary) expr).left);
+                }
+                expanded.clear(depth + 1, unanalyzed.size());
+                continue;
+            }
+
+            unanalyzed.pop();
+            analyzed.add(expr);
+            var number = false;
+            if (expr instanceof Expr.Literal) {
+                number = ((Expr.Literal) expr).value instanceof Double;
+            } else if (expr instanceof Expr.Grouping) {
+                number = numbers.contains(((Expr.Grouping) expr).expression);
+            } else if (expr instanceof Expr.Unary) {
+                var unary = (Expr.Unary) expr;
+                number = unary.operator.type == TokenType.MINUS && numbers.contains(unary.right);
+            } else if (expr instanceof Expr.Binary) {
+                var binary = (Expr.Binary) expr;
+                number = arithmeticInstruction(binary.operator.type) != 0
+                        && numbers.contains(binary.left) && numbers.contains(binary.right);
+            }
+            if (number) {
+                numbers.add(expr);
+            }
+        }
+    }
+
+    private Code startMethod(Expr root) {
+        methodRoot = root;
+        inlined = 0;
+        return new Code();
+    }
+
+    /**
+     * Once the current method has inlined enough nodes, every further subtree gets a method of its own
+     */
+    private boolean emitCall(Code code, Expr expr) {
+        if (expr == methodRoot || inlined < MAX_INLINE_NODES || expr instanceof Expr.Literal) {
+            inlined++;
+            return false;
+        }
+
+        var name = methodNames.get(expr);
+        if (name == null) {
+            name = "e" + methodNames.size();
+            methodNames.put(expr, name);
+            pending.add(expr);
+        }
+        code.invoke(INVOKESTATIC, pool.methodref(CLASS_NAME, name, descriptor(expr)), descriptor(expr));
+        return true;
+    }
+
+    private String descriptor(Expr expr) {
+        return numbers.contains(expr) ? "()D" : "()Ljava/lang/Object;";
+    }
+
+    /**
+     * Emit code leaving the value of a number subtree on the stack as a double
+     */
+    private void emitDouble(Code code, Expr expr) {
+        if (emitCall(code, expr)) {
+            return;
+        }
+
+        if (expr instanceof Expr.Literal) {
+            var value = (double) ((Expr.Literal) expr).value;
+            if (Double.doubleToRawLongBits(value) == Double.doubleToRawLongBits(0.)) {
+                code.op(DCONST_0, 2);
+            } else if (value == 1.) {
+                code.op(DCONST_1, 2);
+            } else {
+                code.op(LDC2_W, pool.doubleConstant(value), 2);
+            }
+        } else if (expr instanceof Expr.Grouping) {
+            emitDouble(code, ((Expr.Grouping) expr).expression);
+        } else if (expr instanceof Expr.Unary) {
+            emitDouble(code, ((Expr.Unary) expr).right);
+            code.op(DNEG, 0);
+        } else {
+            var binary = (Expr.Binary) expr;
+            emitDouble(code, binary.left);
+            emitDouble(code, binary.right);
+            code.op(arithmeticInstruction(binary.operator.type), -2);
+        }
+    }
+
+    /**
+     * Emit code leaving the Lox value of any subtree on the stack as an Object
+     */
+    private void emitObject(Code code, Expr expr) {
+        if (numbers.contains(expr) && !(expr instanceof Expr.Literal)) {
+            emitDouble(code, expr);
+            code.invoke(INVOKESTATIC,
+                    pool.methodref("java/lang/Double", "valueOf", "(D)Ljava/lang/Double;"), "(D)Ljava/lang/Double;");
+            return;
+        }
+        if (emitCall(code, expr)) {
+            return;
+        }
+
+        if (expr instanceof Expr.Literal) {
+            var value = ((Expr.Literal) expr).value;
+            if (value == null) {
+                code.op(ACONST_NULL, 1);
+            } else {
+                emitConstant(code, value);
+            }
+        } else if (expr instanceof Expr.Grouping) {
+            emitObject(code, ((Expr.Grouping) expr).expression);
+        } else if (expr instanceof Expr.Unary) {
+            var unary = (Expr.Unary) expr;
+            emitObject(code, unary.right);
+            if (unary.operator.type == TokenType.BANG) {
+                invokeOperator(code, "not", "(Ljava/lang/Object;)Ljava/lang/Object;");
+            } else {
+                emitToken(code, unary.operator);
+                invokeOperator(code, unary.operator.type == TokenType.MINUS ? "negate" : "unknownUnary",
+                        "(Ljava/lang/Object;L" + TOKEN + ";)Ljava/lang/Object;");
+            }
+        } else {
+            var binary = (Expr.Binary) expr;
+            var name = operatorName(binary.operator.type);
+            if (numbers.contains(binary.left) && numbers.contains(binary.right) && name != null) {
+                // A comparison of two numbers, which can't fail
+                emitDouble(code, binary.left);
+                emitDouble(code, binary.right);
+                invokeOperator(code, name, "(DD)Ljava/lang/Object;");
+                return;
+            }
+            emitObject(code, binary.left);
+            emitObject(code, binary.right);
+            emitToken(code, binary.operator);
+            invokeOperator(code, name == null ? binaryOperatorName(binary.operator.type) : name,
+                    "(Ljava/lang/Object;Ljava/lang/Object;L" + TOKEN + ";)Ljava/lang/Object;");
+        }
+    }
+
+    private void emitToken(Code code, Token token) {
+        emitConstant(code, token);
+        code.op(CHECKCAST, pool.classRef(TOKEN), 0);
+    }
+
+    private void emitConstant(Code code, Object value) {
+        var index = constantIndexes.get(value);
+        if (index == null) {
+            index = constants.size();
+            constants.add(value);
+            constantIndexes.put(value, index);
+        }
+        code.op(GETSTATIC, pool.fieldref(CLASS_NAME, CONSTANTS, CONSTANTS_DESCRIPTOR), 1);
+        code.pushInt(index);
+        code.op(AALOAD, -1);
+    }
+
+    private void invokeOperator(Code code, String name, String descriptor) {
+        code.invoke(INVOKESTATIC, pool.methodref(OPERATORS, name, descriptor), descriptor);
+    }
+
+    /**
+     * The instruction for an operator that maps straight onto double arithmetic, or 0 if there isn't one
+     */
+    private static int arithmeticInstruction(TokenType type) {
+        switch (type) {
+            case PLUS: return DADD;
+            case MINUS: return DSUB;
+            case STAR: return DMUL;
+            case SLASH: return DDIV;
+            default: return 0;
+        }
+    }
+
+    /**
+     * The Operators method for a comparison, which also has an overload for two doubles, or null
+     */
+    private static String operatorName(TokenType type) {
+        switch (type) {
+            case GREATER: return "greater";
+            case GREATER_EQUAL: return "greaterEqual";
+            case LESS: return "less";
+            case LESS_EQUAL: return "lessEqual";
+            case EQUAL_EQUAL: return "equal";
+            case BANG_EQUAL: return "notEqual";
+            default: return null;
+        }
+    }
+
+    private static String binaryOperatorName(TokenType type) {
+        switch (type) {
+            case PLUS: return "add";
+            case MINUS: return "subtract";
+            case STAR: return "multiply";
+            case SLASH: return "divide";
+            default: return "unknownBinary";
+        }
+    }
+
+    private Code constructor() {
+        var code = new Code();
+        code.op(ALOAD_0, 1);
+        code.invoke(INVOKESPECIAL, pool.methodref(OBJECT, "<init>", "()V"), "()V");
+        code.op(RETURN, 0);
+        return code;
+    }
+
+    /**
+     * K = (Object[]) MethodHandles.classData(MethodHandles.lookup(), "_", Object[].class)
+     */
+    private Code classInitializer() {
+        var lookupDescriptor = "()Ljava/lang/invoke/MethodHandles$Lookup;";
+        var classDataDescriptor =
+                "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;";
+
+        var code = new Code();
+        code.invoke(INVOKESTATIC, pool.methodref("java/lang/invoke/MethodHandles", "lookup", lookupDescriptor),
+                lookupDescriptor);
+        code.op(LDC_W, pool.string("_"), 1);
+        code.op(LDC_W, pool.classRef(CONSTANTS_DESCRIPTOR), 1);
+        code.invoke(INVOKESTATIC, pool.methodref("java/lang/invoke/MethodHandles", "classData", classDataDescriptor),
+                classDataDescriptor);
+        code.op(CHECKCAST, pool.classRef(CONSTANTS_DESCRIPTOR), 0);
+        code.op(PUTSTATIC, pool.fieldref(CLASS_NAME, CONSTANTS, CONSTANTS_DESCRIPTOR), -1);
+        code.op(RETURN, 0);
+        return code;
+    }
+
+    private Bytes method(int access, String name, String descriptor, Code code, int maxLocals) {
+        var bytes = code.code.toByteArray();
+        var method = new Bytes();
+        method.u2(access).u2(pool.utf8(name)).u2(pool.utf8(descriptor));
+        // One attribute, Code, with no exception table and no attributes of its own
+        method.u2(1).u2(pool.utf8("Code")).u4(2 + 2 + 4 + bytes.length + 2 + 2);
+        method.u2(code.maxStack).u2(maxLocals).u4(bytes.length).append(bytes).u2(0).u2(0);
+        return method;
+    }
+
+    private byte[] classFile(List<Bytes> methods) {
+        // Everything that goes in the constant pool has to be added before it's written out
+        var thisClass = pool.classRef(CLASS_NAME);
+        var superClass = pool.classRef(OBJECT);
+        var compiledExpr = pool.classRef("com/craftinginterpreters/CompiledExpr");
+        var fieldName = pool.utf8(CONSTANTS);
+        var fieldDescriptor = pool.utf8(CONSTANTS_DESCRIPTOR);
+        if (pool.count > 0xFFFF) {
+            throw new IllegalArgumentException("Expression is too large to compile.");
+        }
+
+        var file = new Bytes();
+        file.u4(0xCAFEBABE).u2(0).u2(61);  // Java 17
+        file.u2(pool.count).append(pool.bytes);
+        file.u2(ACC_FINAL | ACC_SUPER).u2(thisClass).u2(superClass);
+        file.u2(1).u2(compiledExpr);
+        file.u2(1).u2(ACC_PRIVATE | ACC_STATIC | ACC_FINAL).u2(fieldName).u2(fieldDescriptor).u2(0);
+        file.u2(methods.size());
+        for (var method : methods) {
+            file.append(method);
+        }
+        file.u2(0);
+        return file.toByteArray();
+    }
+
+    /**
+     * A growable big-endian byte array, as class files are laid out
+     */
+    private static final class Bytes {
+        private byte[] data = new byte[64];
+        private int length = 0;
+
+        Bytes u1(int value) {
+            if (length == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[length++] = (byte) value;
+            return this;
+        }
+
+        Bytes u2(int value) {
+            return u1(value >> 8).u1(value);
+        }
+
+        Bytes u4(int value) {
+            return u2(value >> 16).u2(value);
+        }
+
+        Bytes append(Bytes other) {
+            for (int i = 0; i < other.length; i++) {
+                u1(other.data[i]);
+            }
+            return this;
+        }
+
+        Bytes append(byte[] other) {
+            for (var b : other) {
+                u1(b);
+            }
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(data, length);
+        }
+    }
+
+    /**
+     * The bytecode of one method, tracking the operand stack depth it needs
+     */
+    private static final class Code {
+        private final Bytes code = new Bytes();
+        private int stack = 0;
+        private int maxStack = 0;
+
+        void op(int opcode, int stackChange) {
+            code.u1(opcode);
+            adjust(stackChange);
+        }
+
+        void op(int opcode, int operand, int stackChange) {
+            code.u1(opcode).u2(operand);
+            adjust(stackChange);
+        }
+
+        void invoke(int opcode, int methodref, String descriptor) {
+            var receiver = opcode == INVOKESTATIC ? 0 : 1;
+            op(opcode, methodref, returnSlots(descriptor) - parameterSlots(descriptor) - receiver);
+        }
+
+        void pushInt(int value) {
+            if (value <= Short.MAX_VALUE) {
+                op(SIPUSH, value, 1);
+                return;
+            }
+            // (value >> 15) << 15 | (value & 0x7FFF), since there are no branches to spare a constant pool entry
+            op(SIPUSH, value >> 15, 1);
+            code.u1(BIPUSH).u1(15);
+            adjust(1);
+            op(ISHL, -1);
+            op(SIPUSH, value & 0x7FFF, 1);
+            op(IOR, -1);
+        }
+
+        private void adjust(int stackChange) {
+            stack += stackChange;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        private static int parameterSlots(String descriptor) {
+            var slots = 0;
+            for (int i = 1; descriptor.charAt(i) != ')'; i++) {
+                var c = descriptor.charAt(i);
+                if (c == 'L') {
+                    i = descriptor.indexOf(';', i);
+                } else if (c == '[') {
+                    while (descriptor.charAt(i) == '[') i++;
+                    if (descriptor.charAt(i) == 'L') i = descriptor.indexOf(';', i);
+                    slots++;
+                    continue;
+                }
+                slots += c == 'D' || c == 'J' ? 2 : 1;
+            }
+            return slots;
+        }
+
+        private static int returnSlots(String descriptor) {
+            var c = descriptor.charAt(descriptor.indexOf(')') + 1);
+            return c == 'V' ? 0 : c == 'D' || c == 'J' ? 2 : 1;
+        }
+    }
+
+    /**
+     * The constant pool, deduplicating entries
+     */
+    private static final class ConstantPool {
+        private final Bytes bytes = new Bytes();
+        private final Map<String, Integer> indexes = new HashMap<>();
+        // The index the next entry will get. Entry 0 is unused.
+        private int count = 1;
+
+        int utf8(String value) {
+            var index = indexes.get("Utf8:" + value);
+            if (index != null) {
+                return index;
+            }
+            var encoded = value.getBytes(StandardCharsets.UTF_8);
+            bytes.u1(1).u2(encoded.length).append(encoded);
+            return add("Utf8:" + value, 1);
+        }
+
+        int classRef(String name) {
+            return reference("Class", 7, utf8(name), -1);
+        }
+
+        int string(String value) {
+            return reference("String", 8, utf8(value), -1);
+        }
+
+        int doubleConstant(double value) {
+            var bits = Double.doubleToRawLongBits(value);
+            var index = indexes.get("Double:" + bits);
+            if (index != null) {
+                return index;
+            }
+            bytes.u1(6).u4((int) (bits >>> 32)).u4((int) bits);
+            // Doubles take up two entries
+            return add("Double:" + bits, 2);
+        }
+
+        int fieldref(String owner, String name, String descriptor) {
+            return reference("Fieldref", 9, classRef(owner), nameAndType(name, descriptor));
+        }
+
+        int methodref(String owner, String name, String descriptor) {
+            return reference("Methodref", 10, classRef(owner), nameAndType(name, descriptor));
+        }
+
+        private int nameAndType(String name, String descriptor) {
+            return reference("NameAndType", 12, utf8(name), utf8(descriptor));
+        }
+
+        /**
+         * An entry made of one or two indexes of other entries. A second index of -1 means there's only one.
+         */
+        private int reference(String kind, int tag, int first, int second) {
+            var key = kind + ":" + first + ":" + second;
+            var index = indexes.get(key);
+            if (index != null) {
+                return index;
+            }
+            bytes.u1(tag).u2(first);
+            if (second >= 0) {
+                bytes.u2(second);
+            }
+            return add(key, 1);
+        }
+
+        private int add(String key, int entries) {
+            var index = count;
+            indexes.put(key, index);
+            count += entries;
+            return index;
+        }
+    }
+
+    /**
+     * Lox's operators over boxed values, called by compiled code. They check operand types exactly as the
+     * Evaluator does, and throw the same RuntimeErrors.
+     */
+    static final class Operators {
+        private Operators() {
+        }
+
+        static Object add(Object left, Object right, Token operator) {
+            if (left instanceof Double && right instanceof Double) {
+                return (double) left + (double) right;
+            }
+            if (left instanceof String && right instanceof String) {
+                return (String) left + (String) right;
+            }
+            throw new RuntimeError(operator, "Operands must be two numbers or two strings.");
+        }
+
+        static Object subtract(Object left, Object right, Token operator) {
+            Evaluator.checkNumberOperands(operator, left, right);
+            return (double) left - (double) right;
+        }
+
+        static Object multiply(Object left, Object right, Token operator) {
+            Evaluator.checkNumberOperands(operator, left, right);
+            return (double) left * (double) right;
+        }
+
+        static Object divide(Object left, Object right, Token operator) {
+            Evaluator.checkNumberOperands(operator, left, right);
+            return (double) left / (double) right;
+        }
+
+        static Object greater(Object left, Object right, Token operator) {
+            Evaluator.checkNumberOperands(operator, left, right);
+            return (double) left > (double) right;
+        }
+
+        static Object greater(double left, double right) {
+            return left > right;
+        }
+
+        static Object greaterEqual(Object left, Object right, Token operator) {
+            Evaluator.checkNumberOperands(operator, left, right);
+            return (double) left >= (double) right;
+        }
+
+        static Object greaterEqual(double left, double right) {
+            return left >= right;
+        }
+
+        static Object less(Object left, Object right, Token operator) {
+            Evaluator.checkNumberOperands(operator, left, right);
+            return (double) left < (double) right;
+        }
+
+        static Object less(double left, double right) {
+            return left < right;
+        }
+
+        static Object lessEqual(Object left, Object right, Token operator) {
+            Evaluator.checkNumberOperands(operator, left, right);
+            return (double) left <= (double) right;
+        }
+
+        static Object lessEqual(double left, double right) {
+            return left <= right;
+        }
+
+        static Object equal(Object left, Object right, Token operator) {
+            return Evaluator.isEqual(left, right);
+        }
+
+        static Object equal(double left, double right) {
+            // Double.equals() semantics, as the Evaluator compares boxed numbers
+            return Double.doubleToLongBits(left) == Double.doubleToLongBits(right);
+        }
+
+        static Object notEqual(Object left, Object right, Token operator) {
+            return !Evaluator.isEqual(left, right);
+        }
+
+        static Object notEqual(double left, double right) {
+            return Double.doubleToLongBits(left) != Double.doubleToLongBits(right);
+        }
+
+        static Object unknownBinary(Object left, Object right, Token operator) {
+            throw new RuntimeError(operator, "Unknown binary operator.");
+        }
+
+        static Object negate(Object operand, Token operator) {
+            Evaluator.checkNumberOperand(operator, operand);
+            return -(double) operand;
+        }
+
+        static Object not(Object operand) {
+            return !Evaluator.isTruthy(operand);
+        }
+
+        static Object unknownUnary(Object operand, Token operator) {
+            throw new RuntimeError(operator, "Unknown unary operator.");
+        }
+    }
+}
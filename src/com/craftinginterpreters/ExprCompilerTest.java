@@ -0,0 +1,101 @@
+package com.craftinginterpreters;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.craftinginterpreters.EvaluatorTest.binary;
+import static com.craftinginterpreters.EvaluatorTest.literal;
+import static com.craftinginterpreters.EvaluatorTest.randomExpr;
+import static com.craftinginterpreters.EvaluatorTest.unary;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExprCompilerTest {
+
+    @Test
+    void testArithmeticAndStrings() {
+        // (1 + 2) * (3 - -4)
+        var arithmetic = binary(
+                new Expr.Grouping(binary(literal(1.), TokenType.PLUS, literal(2.))),
+                TokenType.STAR,
+                new Expr.Grouping(binary(literal(3.), TokenType.MINUS, unary(TokenType.MINUS, literal(4.)))));
+        assertEquals(21., ExprCompiler.compile(arithmetic).evaluate());
+
+        var concat = binary(literal("foo"), TokenType.PLUS, literal("bar"));
+        assertEquals("foobar", ExprCompiler.compile(concat).evaluate());
+        assertEquals(true, ExprCompiler.compile(binary(concat, TokenType.EQUAL_EQUAL, literal("foobar"))).evaluate());
+        assertNull(ExprCompiler.compile(literal(null)).evaluate());
+        assertEquals(false, ExprCompiler.compile(binary(literal(0.), TokenType.EQUAL_EQUAL, literal(-0.))).evaluate());
+    }
+
+    @Test
+    void testErrorsCarryTheOperator() {
+        var expr = binary(literal(1.), TokenType.PLUS, binary(literal(2.), TokenType.LESS, literal("a")));
+        var expected = assertThrows(RuntimeError.class, () -> new Evaluator().evaluate(expr));
+        var actual = assertThrows(RuntimeError.class, () -> ExprCompiler.compile(expr).evaluate());
+        assertEquals(expected.getMessage(), actual.getMessage());
+        assertSame(expected.token, actual.token);
+    }
+
+    @Test
+    void testMatchesEvaluator() {
+        var random = new Random(17);
+        for (int i = 0; i < 3_000; i++) {
+            var expr = randomExpr(random, 6);
+            assertSameResult(expr, new Evaluator(), ExprCompiler.compile(expr));
+        }
+    }
+
+    @Test
+    void testLargeTreesAreSplitAcrossMethods() {
+        var random = new Random(4);
+        // Many times more nodes than one method inlines, both balanced and as one long chain
+        var balanced = balanced(random, 16);
+        var chain = literal(0.);
+        for (int i = 0; i < 3_000; i++) {
+            chain = i % 3 == 0
+                    ? binary(literal((double) i), TokenType.MINUS, chain)
+                    : binary(chain, i % 3 == 1 ? TokenType.PLUS : TokenType.GREATER, literal((double) i));
+        }
+
+        var evaluator = new Evaluator();
+        assertSameResult(balanced, evaluator, ExprCompiler.compile(balanced));
+        assertSameResult(chain, evaluator, ExprCompiler.compile(chain));
+    }
+
+    @Test
+    void testDeepTrees() {
+        var depth = 100_000;
+        var reporter = new CollectingErrorReporter();
+        var nested = new Parser(new Scanner("(".repeat(depth) + "1" + ")".repeat(depth)), reporter).parse();
+        var chain = new Parser(new Scanner("1" + " + 1".repeat(depth)), reporter).parse();
+        // Boxed all the way up, through the Operators helpers
+        var equalities = new Parser(new Scanner("nil" + " == nil".repeat(depth)), reporter).parse();
+        assertFalse(reporter.hadError());
+
+        var evaluator = new Evaluator();
+        assertSameResult(nested, evaluator, ExprCompiler.compile(nested));
+        assertSameResult(chain, evaluator, ExprCompiler.compile(chain));
+        assertSameResult(equalities, evaluator, ExprCompiler.compile(equalities));
+    }
+
+    private static Expr balanced(Random random, int depth) {
+        if (depth == 0) {
+            return randomExpr(random, 1);
+        }
+        return binary(balanced(random, depth - 1), TokenType.PLUS, balanced(random, depth - 1));
+    }
+
+    private static void assertSameResult(Expr expr, Evaluator evaluator, CompiledExpr compiled) {
+        Object expected;
+        try {
+            expected = evaluator.evaluate(expr);
+        } catch (RuntimeError error) {
+            var actual = assertThrows(RuntimeError.class, compiled::evaluate);
+            assertEquals(error.getMessage(), actual.getMessage());
+            assertSame(error.token, actual.token);
+            return;
+        }
+        assertEquals(expected, compiled.evaluate());
+    }
+}
@@ -0,0 +1,110 @@
+package com.craftinginterpreters;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Hash-consing factory for Expr nodes, generated by tool/GenerateAst.
+ *
+ * Every factory method returns the one canonical node for its structure, so repeated subtrees are
+ * shared instead of copied. Tokens compare by type and lexeme, so a shared node keeps the position
+ * of the first occurrence that was interned. Nodes are only weakly referenced and disappear from
+ * the table once nothing else uses them. Not thread-safe: use one interner per compilation.
+ */
+final class ExprInterner {
+    private final Map<Expr, WeakReference<Expr>> table = new WeakHashMap<>();
+
+    Expr binary(Expr left, Token operator, Expr right) {
+        return intern(new Expr.Binary(left, operator, right));
+    }
+
+    Expr grouping(Expr expression) {
+        return intern(new Expr.Grouping(expression));
+    }
+
+    Expr literal(Object value) {
+        return intern(new Expr.Literal(value));
+    }
+
+    Expr unary(Token operator, Expr right) {
+        return intern(new Expr.Unary(operator, right));
+    }
+
+    /**
+     * The canonical copy of a whole tree, interned without recursion so that trees of any depth can be interned
+     */
+    Expr internTree(Expr expr) {
+        var pending = new ArrayDeque<Expr>();
+        // Whether the node at each depth of `pending` has had its children pushed yet
+        var expanded = new BitSet();
+        // Canonical nodes whose parents haven't been interned yet, last child on top
+        var interned = new ArrayList<Expr>();
+
+        pending.push(expr);
+        while (!pending.isEmpty()) {
+            var depth = pending.size() - 1;
+            var node = pending.peek();
+            if (!expanded.get(depth)) {
+                expanded.set(depth);
+                if (node instanceof Expr.Binary) {
+                    var binary = (Expr.Binary) node;
+                    pending.push(binary.right);
+                    pending.push(binary.left);
+                } else if (node instanceof Expr.Grouping) {
+                    var grouping = (Expr.Grouping) node;
+                    pending.push(grouping.expression);
+                } else if (node instanceof Expr.Unary) {
+                    var unary = (Expr.Unary) node;
+                    pending.push(unary.right);
+                }
+                expanded.clear(depth + 1, pending.size());
+                continue;
+            }
+
+            pending.pop();
+            Expr canonical;
+            if (node instanceof Expr.Binary) {
+                var binary = (Expr.Binary) node;
+                var right = interned.remove(interned.size() - 1);
+                var left = interned.remove(interned.size() - 1);
+                canonical = binary(left, binary.operator, right);
+            } else if (node instanceof Expr.Grouping) {
+                var grouping = (Expr.Grouping) node;
+                var expression = interned.remove(interned.size() - 1);
+                canonical = grouping(expression);
+            } else if (node instanceof Expr.Literal) {
+                var literal = (Expr.Literal) node;
+                canonical = literal(literal.value);
+            } else if (node instanceof Expr.Unary) {
+                var unary = (Expr.Unary) node;
+                var right = interned.remove(interned.size() - 1);
+                canonical = unary(unary.operator, right);
+            } else {
+                throw new IllegalArgumentException("Unknown Expr type " + node.getClass().getName());
+            }
+            interned.add(canonical);
+        }
+        return interned.get(0);
+    }
+
+    /**
+     * Distinct nodes currently in the table
+     */
+    int size() {
+        return table.size();
+    }
+
+    private Expr intern(Expr expr) {
+        var existing = table.get(expr);
+        var canonical = existing == null ? null : existing.get();
+        if (canonical != null) {
+            return canonical;
+        }
+        table.put(expr, new WeakReference<>(expr));
+        return expr;
+    }
+}
@@ -0,0 +1,73 @@
+package com.craftinginterpreters;
+
+import org.junit.jupiter.api.Test;
+
+import static com.craftinginterpreters.EvaluatorTest.binary;
+import static com.craftinginterpreters.EvaluatorTest.literal;
+import static com.craftinginterpreters.EvaluatorTest.unary;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExprInternerTest {
+
+    @Test
+    void testStructurallyEqualTreesAreEqual() {
+        var a = binary(literal(1.), TokenType.PLUS, unary(TokenType.MINUS, literal("x")));
+        var b = binary(literal(1.), TokenType.PLUS, unary(TokenType.MINUS, literal("x")));
+        var c = binary(literal(1.), TokenType.MINUS, unary(TokenType.MINUS, literal("x")));
+
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertNotEquals(a, c);
+        assertNotEquals(literal(0.), literal(-0.));
+    }
+
+    @Test
+    void testTokensCompareWithoutPosition() {
+        assertEquals(new Token(TokenType.PLUS, "+", null, 0), new Token(TokenType.PLUS, "+", null, 42));
+        assertNotEquals(new Token(TokenType.NUMBER, "1", 1.), new Token(TokenType.NUMBER, "1.0", 1.));
+    }
+
+    @Test
+    void testRepeatedSubtreesAreShared() {
+        // (1 + 2) * (1 + 2), written out twice with tokens from different places
+        var left = new Expr.Grouping(new Expr.Binary(
+                literal(1.), new Token(TokenType.PLUS, "+", null, 3), literal(2.)));
+        var right = new Expr.Grouping(new Expr.Binary(
+                literal(1.), new Token(TokenType.PLUS, "+", null, 15), literal(2.)));
+        var expr = binary(left, TokenType.STAR, right);
+
+        var interner = new ExprInterner();
+        var shared = (Expr.Binary) interner.internTree(expr);
+
+        assertEquals(expr, shared);
+        assertSame(shared.left, shared.right);
+        // 1, 2, 1 + 2, the grouping and the product
+        assertEquals(5, interner.size());
+        assertSame(shared, interner.internTree(expr));
+        assertSame(((Expr.Grouping) shared.left).expression, interner.binary(
+                interner.literal(1.), new Token(TokenType.PLUS, "+", null), interner.literal(2.)));
+    }
+
+    @Test
+    void testDeepTreesDoNotRecurse() {
+        var depth = 100_000;
+        var source = "1 + (".repeat(depth) + "-2" + ")".repeat(depth);
+        var a = new Parser(new Scanner(source), new CollectingErrorReporter()).parse();
+        var b = new Parser(new Scanner(source), new CollectingErrorReporter()).parse();
+        var c = new Parser(new Scanner(source.replace("-2", "-3")), new CollectingErrorReporter()).parse();
+
+        // Trees are only hashed when asked, and comparing them doesn't ask
+        assertEquals(a, b);
+        assertNotEquals(a, c);
+        assertFalse(a.isHashed());
+        assertEquals(a.hashCode(), b.hashCode());
+        assertTrue(((Expr.Binary) a).right.isHashed());
+
+        var interner = new ExprInterner();
+        var shared = interner.internTree(a);
+        assertEquals(a, shared);
+        assertSame(shared, interner.internTree(b));
+        // 1, 2, -2 and a sum and a grouping per level
+        assertEquals(2 * depth + 3, interner.size());
+    }
+}
@@ -0,0 +1,131 @@
+package com.craftinginterpreters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the tokens of a source up to date as it is edited, rescanning only the region an edit damaged.
+ *
+ * Rescanning restarts just after the last token that can't have been affected by the edit, and stops as
+ * soon as it produces a token that starts at the same (shifted) place as an old token past the edit. From
+ * there on the text and the scanner state are the same as before, so the old tokens are reused with their
+ * offsets shifted. Tokens carry no lines, so an edit that adds or removes newlines doesn't touch the
+ * tokens after it; lines() maps offsets to lines in the current source instead. Edits that open or close
+ * a string or a block comment simply keep the rescan going until the token boundaries line up again, at
+ * worst to the end of the source.
+ */
+public class IncrementalScanner {
+    // Where errors go, or null to print them against the version of the source they were found in
+    private final ErrorReporter reporter;
+    private String source;
+    private LineMap lines;
+    private List<Token> tokens;
+
+    public IncrementalScanner(String source) {
+        this(source, null);
+    }
+
+    /**
+     * Errors from the initial scan and from every rescanned region go to `reporter`. Their offsets are
+     * into the source as it was when they were found.
+     */
+    public IncrementalScanner(String source, ErrorReporter reporter) {
+        this.reporter = reporter;
+        this.source = source;
+        this.lines = new LineMap(source);
+        this.tokens = new Scanner(source, reporterFor(source)).scanTokens();
+    }
+
+    public String source() {
+        return source;
+    }
+
+    public List<Token> tokens() {
+        return tokens;
+    }
+
+    /**
+     * The lines and columns of the current source, for the offsets of tokens()
+     */
+    public LineMap lines() {
+        return lines;
+    }
+
+    /**
+     * Replace the `removedLength` characters at `offset` with `inserted`, returning the updated tokens
+     */
+    public List<Token> edit(int offset, int removedLength, String inserted) {
+        if (offset < 0 || removedLength < 0 || offset + removedLength > source.length()) {
+            throw new IndexOutOfBoundsException(
+                    "Edit [" + offset + ", " + (offset + removedLength) + ") out of bounds for length " + source.length());
+        }
+
+        var newSource = source.substring(0, offset) + inserted + source.substring(offset + removedLength);
+
+        tokens = relex(tokens, newSource, offset, removedLength, inserted.length(), reporterFor(newSource));
+        source = newSource;
+        // Built lazily, so an editor that never asks for a line pays nothing per edit
+        lines = new LineMap(newSource);
+        return tokens;
+    }
+
+    /**
+     * The tokens of newSource, given the tokens of the source it was made from by one edit
+     */
+    static List<Token> relex(List<Token> previous, String newSource, int offset, int removedLength,
+                             int insertedLength, ErrorReporter reporter) {
+        // A token is unaffected if neither it nor the lookahead past its end reach into the edit. Scanning
+        // looks at most one character past the end of a token (e.g. `123` peeks for a `.`).
+        var unaffected = -1;
+        for (int i = 0; i < previous.size() - 1; i++) {
+            if (end(previous.get(i)) + 1 >= offset) {
+                break;
+            }
+            unaffected = i;
+        }
+
+        var result = new ArrayList<Token>(previous.size() + 16);
+        result.addAll(previous.subList(0, unaffected + 1));
+
+        var restart = unaffected >= 0 ? end(previous.get(unaffected)) : 0;
+        var scanner = new Scanner(newSource, restart, newSource.length(), reporter);
+
+        var oldEditEnd = offset + removedLength;
+        var shift = insertedLength - removedLength;
+        // The first old token past the edit that the rescan could line back up with
+        var next = unaffected + 1;
+        while (previous.get(next).offset < oldEditEnd) {
+            next++;
+        }
+
+        for (;;) {
+            var token = scanner.nextToken();
+            while (previous.get(next).offset + shift < token.offset) {
+                next++;
+            }
+            if (previous.get(next).offset + shift == token.offset) {
+                // Back in step with the old tokens: everything from here on is the same text
+                for (int i = next; i < previous.size(); i++) {
+                    result.add(shifted(previous.get(i), shift));
+                }
+                return result;
+            }
+            result.add(token);
+        }
+    }
+
+    private static Token shifted(Token token, int shift) {
+        if (shift == 0) {
+            return token;
+        }
+        return new Token(token.type, token.lexeme, token.literal, token.offset + shift);
+    }
+
+    private ErrorReporter reporterFor(String source) {
+        return reporter != null ? reporter : new PrintingErrorReporter(System.err, source);
+    }
+
+    private static int end(Token token) {
+        return token.offset + token.lexeme.length();
+    }
+}
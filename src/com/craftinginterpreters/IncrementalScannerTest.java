@@ -0,0 +1,78 @@
+package com.craftinginterpreters;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalScannerTest {
+
+    private static final List<String> INSERTIONS = List.of(
+            "\"", "/*", "*/", "//", "\n", " ", "=", "<", ".", "5", "x", "or", "\"str\"", "/* c\n */", "12.5"
+    );
+
+    @Test
+    void testEditInsideIdentifier() {
+        var scanner = new IncrementalScanner("var foo = 1;\nprint foo;");
+        assertEditMatchesFullScan(scanner, 5, 1, "u");
+        assertEquals("fuo", scanner.tokens().get(1).lexeme);
+    }
+
+    @Test
+    void testOpeningStringSwallowsRestOfSource() {
+        var scanner = new IncrementalScanner("var a = 1;\nvar b = \"x\";\nvar c = 3;");
+        assertEditMatchesFullScan(scanner, 8, 0, "\"");
+        assertEditMatchesFullScan(scanner, 8, 1, "");
+    }
+
+    @Test
+    void testOpeningAndClosingNestedBlockComment() {
+        var scanner = new IncrementalScanner("a /* b /* c */ d */ e\nf");
+        assertEditMatchesFullScan(scanner, 12, 3, "");
+        assertEditMatchesFullScan(scanner, 0, 0, "/*");
+        assertEditMatchesFullScan(scanner, 0, 2, "\n\n");
+    }
+
+    @Test
+    void testLinesFollowEdits() {
+        var scanner = new IncrementalScanner("a\nb\nc");
+        var c = scanner.tokens().get(2);
+        assertEquals(3, scanner.lines().line(c.offset));
+
+        // The tokens past the edit are reused, only their offsets shifted
+        scanner.edit(1, 0, "\n\n");
+        assertEquals(5, scanner.lines().line(scanner.tokens().get(2).offset));
+        scanner.edit(0, 4, "");
+        assertEquals(2, scanner.lines().line(scanner.tokens().get(1).offset));
+    }
+
+    @Test
+    void testRandomEditsMatchFullScan() {
+        var random = new Random(11);
+        var scanner = new IncrementalScanner("var foo = 123 + \"bar\";\n/* a /* nested */ comment */\nprint foo <= 12.5;\n");
+        for (int i = 0; i < 2_000; i++) {
+            var source = scanner.source();
+            var offset = random.nextInt(source.length() + 1);
+            var removed = random.nextInt(Math.min(4, source.length() - offset) + 1);
+            var inserted = random.nextInt(4) == 0 ? "" : INSERTIONS.get(random.nextInt(INSERTIONS.size()));
+            // Keep the source from growing or shrinking without bound
+            if (source.length() > 400) {
+                inserted = "";
+            }
+            assertEditMatchesFullScan(scanner, offset, removed, inserted);
+        }
+    }
+
+    private void assertEditMatchesFullScan(IncrementalScanner scanner, int offset, int removedLength, String inserted) {
+        var actual = scanner.edit(offset, removedLength, inserted);
+        var source = scanner.source();
+        var expected = new Scanner(source).scanTokens();
+        assertEquals(expected.size(), actual.size(), source);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString(), source);
+            assertEquals(expected.get(i).offset, actual.get(i).offset, source);
+        }
+    }
+}
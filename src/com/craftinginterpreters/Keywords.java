@@ -0,0 +1,103 @@
+package com.craftinginterpreters;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.craftinginterpreters.TokenType.*;
+
+/**
+ * Decides keyword vs. IDENTIFIER straight from a range of the source, without creating a String for it.
+ *
+ * The lookup table is built from the single KEYWORDS list below: candidates are bucketed by their first
+ * character, so most identifiers are rejected after one array load and a length check. To add a keyword,
+ * add its TokenType and spelling to KEYWORDS.
+ */
+final class Keywords {
+    private static final Object[][] KEYWORDS = {
+            {"and",    AND},
+            {"class",  CLASS},
+            {"else",   ELSE},
+            {"false",  FALSE},
+            {"for",    FOR},
+            {"fun",    FUN},
+            {"if",     IF},
+            {"nil",    NIL},
+            {"or",     OR},
+            {"print",  PRINT},
+            {"return", RETURN},
+            {"super",  SUPER},
+            {"this",   THIS},
+            {"true",   TRUE},
+            {"var",    VAR},
+            {"while",  WHILE},
+    };
+
+    // Keywords bucketed by first character. Indexed by char, null where no keyword starts with that char.
+    private static final char[][][] SPELLINGS = new char[128][][];
+    private static final TokenType[][] TYPES = new TokenType[128][];
+
+    static {
+        var spellings = new ArrayList<List<char[]>>();
+        var types = new ArrayList<List<TokenType>>();
+        for (int c = 0; c < 128; c++) {
+            spellings.add(new ArrayList<>());
+            types.add(new ArrayList<>());
+        }
+        for (var keyword : KEYWORDS) {
+            var spelling = ((String) keyword[0]).toCharArray();
+            spellings.get(spelling[0]).add(spelling);
+            types.get(spelling[0]).add((TokenType) keyword[1]);
+        }
+        for (int c = 0; c < 128; c++) {
+            if (!spellings.get(c).isEmpty()) {
+                SPELLINGS[c] = spellings.get(c).toArray(new char[0][]);
+                TYPES[c] = types.get(c).toArray(new TokenType[0]);
+            }
+        }
+    }
+
+    private Keywords() {
+    }
+
+    /**
+     * Every keyword's spelling and TokenType
+     */
+    static Map<String, TokenType> spellings() {
+        var spellings = new LinkedHashMap<String, TokenType>();
+        for (var keyword : KEYWORDS) {
+            spellings.put((String) keyword[0], (TokenType) keyword[1]);
+        }
+        return spellings;
+    }
+
+    /**
+     * The keyword TokenType spelled by source[start, end), or IDENTIFIER if it isn't one
+     */
+    static TokenType lookup(CharSequence source, int start, int end) {
+        var first = source.charAt(start);
+        if (first >= 128 || SPELLINGS[first] == null) {
+            return IDENTIFIER;
+        }
+
+        var length = end - start;
+        var candidates = SPELLINGS[first];
+        for (int k = 0; k < candidates.length; k++) {
+            if (candidates[k].length == length && matches(candidates[k], source, start)) {
+                return TYPES[first][k];
+            }
+        }
+        return IDENTIFIER;
+    }
+
+    private static boolean matches(char[] spelling, CharSequence source, int start) {
+        // The first character already matched to select the bucket
+        for (int i = 1; i < spelling.length; i++) {
+            if (source.charAt(start + i) != spelling[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,102 @@
+package com.craftinginterpreters;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Turns a source into tokens. Scanner is the hand-written lexer, DfaScanner a table-driven one; both
+ * produce the same tokens and diagnostics for every source.
+ *
+ * create() picks the engine named by -Dlox.lexer: `scanner` (the default) or `dfa`.
+ *
+ * After -Dlox.maxErrors errors (100 by default) a lexer reports TOO_MANY_ERRORS and skips to the end of
+ * the source, so that garbage input costs bounded time and output rather than an error per line of it.
+ * The limit must be at least 1: there is no setting that turns the bound off.
+ */
+public interface Lexer {
+    String ENGINE = System.getProperty("lox.lexer", "scanner");
+    int MAX_ERRORS = checkErrorLimit(Integer.getInteger("lox.maxErrors", 100));
+
+    static Lexer create(CharSequence source, ErrorReporter reporter) {
+        switch (ENGINE) {
+            case "scanner":
+                return new Scanner(source, reporter);
+            case "dfa":
+                return new DfaScanner(source, reporter);
+            default:
+                throw new IllegalArgumentException("Unknown lexer '" + ENGINE + "', expected scanner or dfa");
+        }
+    }
+
+    /**
+     * Scan the whole source from its start, ending with an EOF token
+     */
+    List<Token> scanTokens();
+
+    /**
+     * Scan and return the next token in the source, skipping whitespace and comments.
+     *
+     * Once the end of the source is reached every further call returns an EOF token, so a consumer can
+     * pull tokens on demand without ever holding more than the one it is looking at.
+     */
+    Token nextToken();
+
+    /**
+     * Point this lexer at a new source, so one instance can be reused for many scans
+     */
+    void reset(CharSequence source, ErrorReporter reporter);
+
+    /**
+     * Give up on the source once this many errors have been reported in it, instead of MAX_ERRORS.
+     * Throws IllegalArgumentException unless errorLimit is at least 1.
+     */
+    void setErrorLimit(int errorLimit);
+
+    /**
+     * `errorLimit`, if it is a usable error limit: one that is at least 1
+     */
+    static int checkErrorLimit(int errorLimit) {
+        if (errorLimit < 1) {
+            throw new IllegalArgumentException("Error limit must be at least 1, got " + errorLimit);
+        }
+        return errorLimit;
+    }
+
+    /**
+     * A lazy iterator over the remaining tokens, ending with (and including) the EOF token.
+     */
+    default Iterator<Token> iterator() {
+        return new Iterator<>() {
+            private boolean done = false;
+
+            @Override
+            public boolean hasNext() {
+                return !done;
+            }
+
+            @Override
+            public Token next() {
+                if (done) {
+                    throw new NoSuchElementException();
+                }
+                var token = nextToken();
+                done = token.type == TokenType.EOF;
+                return token;
+            }
+        };
+    }
+
+    /**
+     * A lazy, sequential stream over the remaining tokens, ending with (and including) the EOF token.
+     */
+    default Stream<Token> tokens() {
+        var spliterator = Spliterators.spliteratorUnknownSize(
+                iterator(), Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        return StreamSupport.stream(spliterator, false);
+    }
+}
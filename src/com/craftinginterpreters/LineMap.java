@@ -0,0 +1,78 @@
+package com.craftinginterpreters;
+
+import java.util.Arrays;
+
+/**
+ * Turns the source offsets that tokens and diagnostics carry into lines and columns, both counted from 1.
+ *
+ * The table of line start offsets is built the first time it's needed, in one pass that finds the
+ * newlines with CharSearch, so a MappedSource is searched a long at a time. Each lookup is then a binary
+ * search over it. Nothing is paid for sources whose positions are never asked for.
+ */
+public final class LineMap {
+    private final CharSequence source;
+    // lineStarts[i] is the offset of the first char of line i + 1
+    private int[] lineStarts = null;
+    private int lineCount = 0;
+
+    public LineMap(CharSequence source) {
+        this.source = source;
+    }
+
+    /**
+     * The line the char at `offset` is on. An offset just past a newline is on the next line, and the
+     * source length is on the last one.
+     */
+    public int line(int offset) {
+        checkOffset(offset);
+        var index = Arrays.binarySearch(lineStarts(), 0, lineCount, offset);
+        // Not a line start itself, so on the line starting before the insertion point
+        return index >= 0 ? index + 1 : -(index + 1);
+    }
+
+    public int column(int offset) {
+        return offset - lineStart(line(offset)) + 1;
+    }
+
+    /**
+     * Offset of the first char of `line`
+     */
+    public int lineStart(int line) {
+        if (line < 1 || line > lineCount()) {
+            throw new IndexOutOfBoundsException("Line " + line + " out of bounds for " + lineCount + " lines");
+        }
+        return lineStarts[line - 1];
+    }
+
+    /**
+     * Number of lines, i.e. one more than the number of newlines
+     */
+    public int lineCount() {
+        lineStarts();
+        return lineCount;
+    }
+
+    private int[] lineStarts() {
+        if (lineStarts == null) {
+            var length = source.length();
+            var starts = new int[16];
+            var count = 1;
+            for (int i = CharSearch.indexOf(source, '\n', 0, length); i < length;
+                 i = CharSearch.indexOf(source, '\n', i + 1, length)) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i + 1;
+            }
+            lineStarts = starts;
+            lineCount = count;
+        }
+        return lineStarts;
+    }
+
+    private void checkOffset(int offset) {
+        if (offset < 0 || offset > source.length()) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " out of bounds for length " + source.length());
+        }
+    }
+}
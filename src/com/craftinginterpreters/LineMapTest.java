@@ -0,0 +1,88 @@
+package com.craftinginterpreters;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineMapTest {
+
+    @Test
+    void testLinesAndColumns() {
+        var lines = new LineMap("ab\n\ncd\n");
+        assertEquals(4, lines.lineCount());
+        assertEquals(List.of(1, 1, 1, 2, 3, 3, 3, 4), List.of(
+                lines.line(0), lines.line(1), lines.line(2), lines.line(3),
+                lines.line(4), lines.line(5), lines.line(6), lines.line(7)));
+        assertEquals(List.of(1, 2, 3, 1, 1, 2, 3, 1), List.of(
+                lines.column(0), lines.column(1), lines.column(2), lines.column(3),
+                lines.column(4), lines.column(5), lines.column(6), lines.column(7)));
+        assertEquals(4, lines.lineStart(3));
+
+        var empty = new LineMap("");
+        assertEquals(1, empty.lineCount());
+        assertEquals(1, empty.line(0));
+        assertEquals(1, empty.column(0));
+    }
+
+    @Test
+    void testOutOfBounds() {
+        var lines = new LineMap("a\nb");
+        assertThrows(IndexOutOfBoundsException.class, () -> lines.line(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> lines.line(4));
+        assertThrows(IndexOutOfBoundsException.class, () -> lines.lineStart(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> lines.lineStart(3));
+    }
+
+    @Test
+    void testMatchesCountingNewlines() {
+        var random = new Random(23);
+        for (int i = 0; i < 200; i++) {
+            var text = new StringBuilder();
+            var length = random.nextInt(200);
+            for (int c = 0; c < length; c++) {
+                text.append(random.nextInt(4) == 0 ? '\n' : 'x');
+            }
+
+            var source = text.toString();
+            var mapped = new MappedSource(ByteBuffer.wrap(source.getBytes(StandardCharsets.US_ASCII)));
+            for (var lines : List.of(new LineMap(source), new LineMap(text), new LineMap(mapped))) {
+                var line = 1;
+                var column = 1;
+                for (int offset = 0; offset <= source.length(); offset++) {
+                    assertEquals(line, lines.line(offset), source);
+                    assertEquals(column, lines.column(offset), source);
+                    if (offset < source.length() && source.charAt(offset) == '\n') {
+                        line++;
+                        column = 1;
+                    } else {
+                        column++;
+                    }
+                }
+                assertEquals(line, lines.lineCount());
+            }
+        }
+    }
+
+    @Test
+    void testTokenBufferLinesMatchScanner() {
+        var source = "var a = \"multi\nline\n string\";\n/* a\n comment */ b = @ 12.5\n\n// end\n";
+        var expected = new Scanner(source, new CollectingErrorReporter()).scanTokens();
+        var buffer = new Scanner(source, new CollectingErrorReporter()).scanTokenBuffer();
+        var lines = new LineMap(source);
+
+        assertEquals(expected.size(), buffer.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            assertEquals(lines.line(expected.get(i).offset), buffer.line(i), expected.get(i).toString());
+        }
+        // A multi-line string is on the line it starts on
+        assertEquals(1, buffer.line(3));
+        // `b` follows the end of the comment, on line 5
+        assertEquals("b", buffer.lexeme(5));
+        assertEquals(13, buffer.column(5));
+    }
+}
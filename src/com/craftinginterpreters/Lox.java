@@ -1,38 +1,126 @@
 package com.craftinginterpreters;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.nio.charset.Charset;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.Scanner;
+import java.util.Iterator;
 
 public class Lox {
-    static boolean hadError = false;
+    // Directory to cache scanned token streams in across runs, if set
+    private static final String TOKEN_CACHE = System.getProperty("lox.tokenCache");
+    private static final long TOKEN_CACHE_BYTES = Long.getLong("lox.tokenCache.maxBytes", 64L << 20);
+
+    // Where to write the scanner metrics as JSON at exit, if they're enabled. Defaults to stderr.
+    private static final String METRICS_JSON = System.getProperty("lox.metrics.json");
+
+    // How much piped input is read, and its output written, at a time
+    static final int BATCH_CHARS = 1 << 16;
 
     public static void main(String[] args) throws IOException {
-        if (args.length > 1) {
-            System.out.println("Usage: jlox [script]");
-            System.exit(64);
-        } else if (args.length == 1) {
-            runFile(args[0]);
+        if (ScannerMetrics.ENABLED) {
+            reportMetrics((CountingScannerMetrics) ScannerMetrics.GLOBAL);
+        }
+
+        String script = null;
+        var binary = false;
+        var batch = false;
+        for (var arg : args) {
+            if (arg.equals("--emit=tokens") || arg.equals("--emit=tokens-bin")) {
+                binary = arg.equals("--emit=tokens-bin");
+            } else if (arg.equals("--batch")) {
+                batch = true;
+            } else if (script == null && !arg.startsWith("--")) {
+                script = arg;
+            } else {
+                usage();
+            }
+        }
+
+        if (script != null) {
+            if (batch) {
+                // A script is already scanned in one go
+                usage();
+            }
+            runFile(script, binary);
+        } else if (binary) {
+            // Offsets in a binary stream point into one source, which a prompt doesn't have
+            usage();
         } else {
-            runPrompt();
+            runPrompt(batch);
         }
     }
 
-    private static void runFile(String path) throws IOException {
-        var bytes = Files.readAllBytes(Paths.get(path));
-        run(new String(bytes, Charset.defaultCharset()));
+    private static void usage() {
+        System.out.println("Usage: jlox [--emit=tokens|tokens-bin] [script]");
+        System.out.println("       jlox --batch");
+        System.out.println("  --emit=tokens-bin writes a script's tokens in TokenWriter's binary format");
+        System.out.println("  --batch scans each line of stdin without prompting, as is done when it's piped in");
+        System.exit(64);
+    }
+
+    private static void reportMetrics(CountingScannerMetrics metrics) {
+        metrics.register();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (METRICS_JSON == null) {
+                System.err.println(metrics.toJson());
+                return;
+            }
+            try {
+                Files.writeString(Paths.get(METRICS_JSON), metrics.toJson());
+            } catch (IOException e) {
+                System.err.println("Failed to write metrics to " + METRICS_JSON + ": " + e.getMessage());
+            }
+        }));
+    }
+
+    private static void runFile(String path, boolean binary) throws IOException {
+        // Lex straight over the mapped file rather than copying and decoding it onto the heap
+        var source = MappedSource.map(Paths.get(path));
+        var reporter = new PrintingErrorReporter(System.err, source);
+        Iterator<Token> tokens;
+        if (TOKEN_CACHE != null) {
+            var cache = new TokenCache(Paths.get(TOKEN_CACHE), TOKEN_CACHE_BYTES);
+            tokens = cache.scanTokens(source, reporter).iterator();
+        } else {
+            tokens = Lexer.create(source, reporter).iterator();
+        }
+
+        if (binary) {
+            // Straight to the stdout file descriptor, past System.out and its text encoding
+            var writer = new TokenWriter(new FileOutputStream(FileDescriptor.out).getChannel(), source);
+            while (tokens.hasNext()) {
+                writer.write(tokens.next());
+            }
+            writer.flush();
+        } else {
+            tokens.forEachRemaining(System.out::println);
+        }
 
-        if (hadError) {
+        if (reporter.hadError()) {
             System.exit(65);
         }
     }
 
-    private static void runPrompt() throws IOException {
+    private static void runPrompt(boolean batch) throws IOException {
         var input = new InputStreamReader(System.in);
+        // Input piped in from another program gets no prompts, and is worked through in bulk. There's no
+        // console unless both stdin and stdout are a terminal, so redirecting only the output picks batch
+        // mode too: lines typed in are still scanned as they're entered, just without a prompt.
+        if (batch || System.console() == null) {
+            var output = new BufferedWriter(new OutputStreamWriter(System.out), BATCH_CHARS);
+            runBatch(input, output, System.err);
+            return;
+        }
+
         var reader = new BufferedReader(input);
 
         for (;;) {
@@ -42,21 +130,81 @@ public class Lox {
             if (line == null) {
                 break;
             }
-            run(line);
-            hadError = false;
+            // A fresh reporter per line, so one bad line doesn't count against the next
+            run(line, new PrintingErrorReporter(System.err, line));
+        }
+    }
+
+    /**
+     * Run each line of `input` as the prompt would, but reading it and writing the tokens in chunks of
+     * BATCH_CHARS, with one lexer reset for every line. Output is flushed once per chunk read, so a
+     * program feeding lines in and waiting for their tokens still gets them.
+     *
+     * Lines end as they do for BufferedReader.readLine(): at a \n, a \r, or a \r\n.
+     */
+    static void runBatch(Reader input, Writer output, PrintStream errors) throws IOException {
+        var chunk = new char[BATCH_CHARS];
+        // The start of a line the last chunk ended partway through
+        var partial = new StringBuilder();
+        // Whether the last char was a \r, so a \n right after it is part of the same line end
+        var afterReturn = false;
+        Lexer lexer = null;
+
+        int read;
+        while ((read = input.read(chunk)) != -1) {
+            var lineStart = 0;
+            for (int i = 0; i < read; i++) {
+                var c = chunk[i];
+                if (c == '\n' && afterReturn) {
+                    afterReturn = false;
+                    lineStart = i + 1;
+                    continue;
+                }
+                afterReturn = c == '\r';
+                if (c != '\n' && c != '\r') {
+                    continue;
+                }
+                String line;
+                if (partial.length() > 0) {
+                    line = partial.append(chunk, lineStart, i - lineStart).toString();
+                    partial.setLength(0);
+                } else {
+                    line = new String(chunk, lineStart, i - lineStart);
+                }
+                lexer = runBatched(lexer, line, output, errors);
+                lineStart = i + 1;
+            }
+            partial.append(chunk, lineStart, read - lineStart);
+            output.flush();
+        }
+
+        // A last line without a newline at the end
+        if (partial.length() > 0) {
+            runBatched(lexer, partial.toString(), output, errors);
         }
+        output.flush();
     }
 
-    private static void run(String source) {
-        var scanner = new Scanner(source);
-        var tokens = scanner.tokens();
-        scanner.tokens().forEach(System.out::println);
+    private static Lexer runBatched(Lexer lexer, String line, Writer output, PrintStream errors)
+            throws IOException {
+        var reporter = new PrintingErrorReporter(errors, line);
+        if (lexer == null) {
+            lexer = Lexer.create(line, reporter);
+        } else {
+            lexer.reset(line, reporter);
+        }
+
+        Token token;
+        do {
+            token = lexer.nextToken();
+            output.write(token.toString());
+            output.write(System.lineSeparator());
+        } while (token.type != TokenType.EOF);
+        return lexer;
     }
 
-    // TODO: Refactor hadError into some kind of error reporting interface that can be
-    //       passed to operations in run()
-    public static void report(int line, String where, String message) {
-        System.err.println("[line " + line + "] Error" + where + ": " + message);
-        hadError = true;
+    private static void run(CharSequence source, ErrorReporter reporter) {
+        // Tokens are pulled from the lexer one at a time rather than materialized up front
+        Lexer.create(source, reporter).tokens().forEach(System.out::println);
     }
 }
\ No newline at end of file
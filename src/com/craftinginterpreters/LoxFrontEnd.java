@@ -0,0 +1,129 @@
+package com.craftinginterpreters;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A thread-safe service that scans many independent Lox sources concurrently.
+ *
+ * Every request gets its own lexer state and its own CollectingErrorReporter, so requests share no
+ * mutable state and nothing is printed. Lexers come from Lexer.create(), so -Dlox.lexer picks the engine
+ * as it does for Lox. They are pooled and pointed at each new source with Lexer.reset(source, reporter)
+ * rather than allocated per request.
+ *
+ * By default each request runs on its own virtual thread when the JVM has them (Java 21+), and on a
+ * work-stealing pool sized to the machine otherwise.
+ */
+public class LoxFrontEnd implements AutoCloseable {
+    private final ExecutorService executor;
+    private final int maxErrors;
+    private final ArrayBlockingQueue<Lexer> lexers;
+
+    /**
+     * Requests give up after Lexer.MAX_ERRORS errors, which -Dlox.maxErrors sets
+     */
+    public LoxFrontEnd() {
+        this(defaultExecutor(), Lexer.MAX_ERRORS);
+    }
+
+    /**
+     * @param executor runs the requests, and is shut down by close()
+     * @param maxErrors how many errors to report per request before giving up on the rest of its source
+     */
+    public LoxFrontEnd(ExecutorService executor, int maxErrors) {
+        this.executor = executor;
+        this.maxErrors = Lexer.checkErrorLimit(maxErrors);
+        this.lexers = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * The tokens of one source, or the errors that were found in it
+     */
+    public static final class Result {
+        final List<Token> tokens;
+        final List<Diagnostic> diagnostics;
+        final int errorCount;
+
+        Result(List<Token> tokens, CollectingErrorReporter errors) {
+            this.tokens = tokens;
+            this.diagnostics = errors.diagnostics();
+            this.errorCount = errors.errorCount();
+        }
+
+        public List<Token> tokens() {
+            return tokens;
+        }
+
+        public List<Diagnostic> diagnostics() {
+            return diagnostics;
+        }
+
+        public int errorCount() {
+            return errorCount;
+        }
+
+        public boolean hadError() {
+            return errorCount > 0;
+        }
+    }
+
+    public CompletableFuture<Result> submit(CharSequence source) {
+        return CompletableFuture.supplyAsync(() -> scan(source), executor);
+    }
+
+    public List<CompletableFuture<Result>> submitAll(Collection<? extends CharSequence> sources) {
+        var results = new ArrayList<CompletableFuture<Result>>(sources.size());
+        for (var source : sources) {
+            results.add(submit(source));
+        }
+        return results;
+    }
+
+    /**
+     * Scan on the calling thread
+     */
+    public Result scan(CharSequence source) {
+        // Room for the lexer's note that it gave up, after maxErrors errors
+        var errors = new CollectingErrorReporter(maxErrors + 1);
+        var lexer = lexers.poll();
+        if (lexer == null) {
+            lexer = Lexer.create(source, errors);
+        } else {
+            lexer.reset(source, errors);
+        }
+        lexer.setErrorLimit(maxErrors);
+
+        try {
+            return new Result(lexer.scanTokens(), errors);
+        } finally {
+            // Don't keep the source reachable from the pool. If the pool is full the lexer is dropped.
+            lexer.reset("", errors);
+            lexers.offer(lexer);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private static ExecutorService defaultExecutor() {
+        try {
+            // Looked up reflectively so this still compiles and runs on JVMs without virtual threads
+            var factory = MethodHandles.publicLookup().findStatic(
+                    Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+            return (ExecutorService) factory.invoke();
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return Executors.newWorkStealingPool();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not create the default executor", e);
+        }
+    }
+}
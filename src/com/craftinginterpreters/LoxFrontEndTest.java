@@ -0,0 +1,61 @@
+package com.craftinginterpreters;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoxFrontEndTest {
+
+    @Test
+    void testConcurrentRequestsDoNotShareState() {
+        var sources = new ArrayList<String>();
+        for (int i = 0; i < 500; i++) {
+            // Every other source has an error, which must only show up in its own result
+            sources.add(i % 2 == 0 ? "var x" + i + " = " + i + ";" : "var y" + i + " = \"unterminated");
+        }
+
+        try (var frontEnd = new LoxFrontEnd()) {
+            var futures = frontEnd.submitAll(sources);
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+            for (int i = 0; i < sources.size(); i++) {
+                var result = futures.get(i).join();
+                var expected = new Scanner(sources.get(i), new CollectingErrorReporter()).scanTokens();
+                assertEquals(
+                        expected.stream().map(Token::toString).toList(),
+                        result.tokens().stream().map(Token::toString).toList());
+                assertEquals(i % 2 == 1, result.hadError(), sources.get(i));
+                assertEquals(i % 2 == 1 ? 1 : 0, result.diagnostics().size());
+            }
+        }
+    }
+
+    @Test
+    void testScannerStopsAtMaxErrors() {
+        var source = "@ ".repeat(10) + "x";
+        try (var frontEnd = new LoxFrontEnd(Executors.newSingleThreadExecutor(), 3)) {
+            // The second scan reuses the pooled scanner
+            for (int i = 0; i < 2; i++) {
+                var result = frontEnd.scan(source);
+                assertEquals(4, result.errorCount());
+                assertEquals(4, result.diagnostics().size());
+                assertEquals(Diagnostic.Kind.TOO_MANY_ERRORS, result.diagnostics().get(3).kind());
+                assertEquals(TokenType.EOF, result.tokens().get(0).type);
+            }
+        }
+    }
+
+    @Test
+    void testDefaultsToTheLexersErrorLimit() {
+        var source = "@ ".repeat(Lexer.MAX_ERRORS + 10);
+        try (var frontEnd = new LoxFrontEnd()) {
+            var result = frontEnd.scan(source);
+            assertEquals(Lexer.MAX_ERRORS + 1, result.errorCount());
+            assertEquals(Diagnostic.Kind.TOO_MANY_ERRORS, result.diagnostics().get(Lexer.MAX_ERRORS).kind());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.craftinginterpreters;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoxTest {
+
+    @Test
+    void testBatchMatchesScanningEachLine() throws Exception {
+        // The long line is split across the chunks input is read in
+        var lines = List.of("var a = 1;", "", "print \"s\" + a;\r", "@ x", "b".repeat(200_000) + " = 2;", "1 <= 2");
+        var expected = new StringBuilder();
+        var expectedErrors = new ByteArrayOutputStream();
+        for (var line : lines) {
+            var source = line.replace("\r", "");
+            var errors = new PrintingErrorReporter(new PrintStream(expectedErrors, true, StandardCharsets.UTF_8), source);
+            for (var token : new Scanner(source, errors).scanTokens()) {
+                expected.append(token).append(System.lineSeparator());
+            }
+        }
+
+        var output = new StringWriter();
+        var errors = new ByteArrayOutputStream();
+        Lox.runBatch(new StringReader(String.join("\n", lines)), output,
+                new PrintStream(errors, true, StandardCharsets.UTF_8));
+
+        assertEquals(expected.toString(), output.toString());
+        assertEquals(expectedErrors.toString(StandardCharsets.UTF_8), errors.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testBatchLinesEndLikeReadLine() throws Exception {
+        // A lone \r ends a line, and so does a \r\n split between two chunks
+        var start = "1\r2\r\n3\n";
+        var input = start + "a".repeat(Lox.BATCH_CHARS - 1 - start.length()) + "\r\n4";
+        var expected = new StringBuilder();
+        var lines = new BufferedReader(new StringReader(input));
+        String line;
+        while ((line = lines.readLine()) != null) {
+            for (var token : new Scanner(line, new CollectingErrorReporter()).scanTokens()) {
+                expected.append(token).append(System.lineSeparator());
+            }
+        }
+
+        var output = new StringWriter();
+        var errors = new ByteArrayOutputStream();
+        Lox.runBatch(new StringReader(input), output, new PrintStream(errors, true, StandardCharsets.UTF_8));
+
+        assertEquals(expected.toString(), output.toString());
+        assertEquals(0, errors.size());
+    }
+
+    @Test
+    void testPipedInputGetsNoPrompts() throws Exception {
+        var classpath = Paths.get(Lox.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        var java = Paths.get(System.getProperty("java.home"), "bin", "java");
+
+        var process = new ProcessBuilder(java.toString(), "-cp", classpath.toString(), "com.craftinginterpreters.Lox")
+                .redirectErrorStream(true)
+                .start();
+        try (var input = process.getOutputStream()) {
+            input.write("1 + 2\nnil\n".getBytes(StandardCharsets.UTF_8));
+        }
+        var output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertEquals(0, process.waitFor());
+
+        var expected = String.join(System.lineSeparator(),
+                "NUMBER 1 1.0", "PLUS + null", "NUMBER 2 2.0", "EOF  null", "NIL nil nil", "EOF  null", "");
+        assertEquals(expected, output);
+    }
+
+    @Test
+    void testEmitsBinaryTokens() throws Exception {
+        var script = Files.createTempFile("lox-test", ".lox");
+        try {
+            Files.writeString(script, "var s = \"caf\u00e9\";\nprint s + 1.5;", StandardCharsets.UTF_8);
+            var classpath = Paths.get(Lox.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            var java = Paths.get(System.getProperty("java.home"), "bin", "java");
+
+            var process = new ProcessBuilder(java.toString(), "-cp", classpath.toString(),
+                    "com.craftinginterpreters.Lox", "--emit=tokens-bin", script.toString())
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            var output = process.getInputStream().readAllBytes();
+            assertEquals(0, process.waitFor());
+
+            var source = MappedSource.map(script);
+            var tokens = new TokenReader(Channels.newChannel(new ByteArrayInputStream(output)), source).readAll();
+            assertEquals(new Scanner(source).scanTokens(), tokens);
+        } finally {
+            Files.delete(script);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.craftinginterpreters;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A Lox source file viewed directly over its bytes, without decoding the whole file to UTF-16 up front.
+ *
+ * Every byte is one char: the Lox grammar is pure ASCII, so the scanner can lex over bytes as-is. Any
+ * non-ASCII UTF-8 sequences can only legally appear inside string literals and comments, and are only
+ * decoded when a lexeme is actually turned into a String via subSequence(...).toString().
+ *
+ * Offsets (and therefore the `start` offsets in error messages) are byte offsets into the file.
+ */
+public class MappedSource implements CharSequence {
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    private final ByteBuffer bytes;
+    // The same bytes, read eight at a time so that the first in memory is the lowest in the long
+    private final ByteBuffer words;
+    private final int offset;
+    private final int length;
+
+    public MappedSource(ByteBuffer bytes) {
+        this(bytes, bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN), 0, bytes.limit());
+    }
+
+    private MappedSource(ByteBuffer bytes, ByteBuffer words, int offset, int length) {
+        this.bytes = bytes;
+        this.words = words;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Memory-map the file at path read-only. The mapping stays valid after the channel is closed.
+     */
+    public static MappedSource map(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Source file too large to map: " + path);
+            }
+            return new MappedSource(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * The viewed bytes, as a read-only buffer positioned at the first of them
+     */
+    ByteBuffer bytes() {
+        return bytes.asReadOnlyBuffer().position(offset).limit(offset + length).slice();
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes.get(offset + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new MappedSource(bytes, words, offset + start, end - start);
+    }
+
+    /**
+     * Index of the first `c` in [from, to), or `to` if there isn't one. Searches a long at a time (SWAR).
+     */
+    int indexOf(char c, int from, int to) {
+        var i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            var found = matches(words.getLong(offset + i), c);
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            if (charAt(i) == c) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Index of the first char in [from, to) that isn't a space, tab, carriage return or newline, or `to`
+     */
+    int skipBlanks(int from, int to) {
+        var i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            var word = words.getLong(offset + i);
+            var blanks = matches(word, ' ') | matches(word, '\t') | matches(word, '\r') | matches(word, '\n');
+            var others = ~blanks & ~LOW_BITS;
+            if (others != 0) {
+                return i + (Long.numberOfTrailingZeros(others) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            var c = charAt(i);
+            if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * The high bit set in exactly the bytes of `word` equal to `c`, and nothing else. Unlike the more
+     * common (x - 0x01..) & ~x & 0x80.. trick there are no false positives, so the matches for several
+     * chars can be or-ed together.
+     */
+    private static long matches(long word, char c) {
+        var x = word ^ (ONES * c);
+        // Adding 0x7F to the low seven bits of a byte sets its high bit unless they're all zero
+        return ~(((x & LOW_BITS) + LOW_BITS) | x | LOW_BITS);
+    }
+
+    /**
+     * Decode the viewed bytes as UTF-8
+     */
+    @Override
+    public String toString() {
+        var chunk = new byte[length];
+        bytes.get(offset, chunk);
+        return new String(chunk, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,165 @@
+package com.craftinginterpreters;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Scans large sources by splitting them into chunks and scanning the chunks concurrently.
+ *
+ * Chunks are split just after a newline that lies outside of any string literal or block comment, where
+ * the Scanner is guaranteed to be between tokens. Finding those boundaries takes a quick sequential pass
+ * that only tracks whether it is inside a string or comment, without building any tokens. The chunk
+ * results are then concatenated, dropping every EOF but the last, which gives exactly the tokens of
+ * Scanner.scanTokens().
+ *
+ * Tokens from different chunks are interned in different SymbolTables, so equal lexemes are only
+ * guaranteed to share a String within a chunk.
+ */
+public class ParallelScanner {
+    // Below this many chars splitting the work up costs more than it saves
+    static final int DEFAULT_THRESHOLD = 1 << 20;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+    private int errorLimit = Lexer.MAX_ERRORS;
+
+    public ParallelScanner() {
+        this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    public ParallelScanner(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Give up on a source once this many errors have been reported in it, as Lexer.setErrorLimit() does
+     */
+    public void setErrorLimit(int errorLimit) {
+        this.errorLimit = Lexer.checkErrorLimit(errorLimit);
+    }
+
+    public List<Token> scanTokens(CharSequence source) {
+        return scanTokens(source, new PrintingErrorReporter(System.err, source));
+    }
+
+    public List<Token> scanTokens(CharSequence source, ErrorReporter reporter) {
+        if (source.length() < threshold) {
+            return scanSequentially(source, reporter);
+        }
+
+        // A few chunks per worker so an unlucky split doesn't leave the others idle
+        var chunkCount = pool.getParallelism() * 4;
+        var targetSize = Math.max(threshold / 4, source.length() / chunkCount);
+        var boundaries = findBoundaries(source, targetSize);
+        if (boundaries.size() == 1) {
+            return scanSequentially(source, reporter);
+        }
+
+        // Each chunk collects its own errors so they can be passed on in source order afterwards
+        var errors = new ArrayList<CollectingErrorReporter>();
+        var tasks = new ArrayList<ForkJoinTask<List<Token>>>();
+        for (int i = 0; i < boundaries.size(); i++) {
+            var from = boundaries.get(i);
+            var to = i + 1 < boundaries.size() ? boundaries.get(i + 1) : source.length();
+            var chunkErrors = new CollectingErrorReporter(Integer.MAX_VALUE);
+            errors.add(chunkErrors);
+            tasks.add(pool.submit(() -> {
+                var scanner = new Scanner(source, from, to, chunkErrors);
+                scanner.setErrorLimit(errorLimit);
+                return scanner.scanTokens();
+            }));
+        }
+
+        var chunks = new ArrayList<List<Token>>();
+        var errorCount = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            chunks.add(tasks.get(i).join());
+            errorCount += errors.get(i).errorCount();
+        }
+        // Past the error limit a sequential scan gives up partway, which no chunk can know about, so
+        // leave error-heavy sources to it
+        if (errorCount >= errorLimit) {
+            return scanSequentially(source, reporter);
+        }
+
+        var tokens = new ArrayList<Token>();
+        for (int i = 0; i < chunks.size(); i++) {
+            var chunk = chunks.get(i);
+            errors.get(i).forwardTo(reporter);
+            var last = i == chunks.size() - 1;
+            // Every chunk ends with its own EOF, only the final one belongs in the output
+            tokens.addAll(last ? chunk : chunk.subList(0, chunk.size() - 1));
+        }
+        return tokens;
+    }
+
+    private List<Token> scanSequentially(CharSequence source, ErrorReporter reporter) {
+        var scanner = new Scanner(source, reporter);
+        scanner.setErrorLimit(errorLimit);
+        return scanner.scanTokens();
+    }
+
+    /**
+     * The offset each chunk starts at, the first always being 0
+     */
+    static List<Integer> findBoundaries(CharSequence source, int targetSize) {
+        var boundaries = new ArrayList<Integer>();
+        boundaries.add(0);
+
+        var length = source.length();
+        var nextSplit = targetSize;
+        var i = 0;
+
+        // This mirrors how far Scanner.scanToken() consumes strings and comments, character for character.
+        // Every other token is made of characters that can't start a string or comment or end a line, so
+        // they can be stepped over one character at a time.
+        while (i < length) {
+            var c = source.charAt(i++);
+            switch (c) {
+                case '\n':
+                    if (i >= nextSplit && i < length) {
+                        boundaries.add(i);
+                        nextSplit = i + targetSize;
+                    }
+                    break;
+                case '"':
+                    while (i < length && source.charAt(i) != '"') {
+                        i++;
+                    }
+                    if (i < length) {
+                        i++;  // The closing "
+                    }
+                    break;
+                case '/':
+                    if (i < length && source.charAt(i) == '/') {
+                        while (i < length && source.charAt(i) != '\n') {
+                            i++;
+                        }
+                    } else if (i < length && source.charAt(i) == '*') {
+                        i++;
+                        var nestingCount = 1;
+                        while (nestingCount > 0 && i < length) {
+                            var next = i + 1 < length ? source.charAt(i + 1) : '\0';
+                            if (source.charAt(i) == '/' && next == '*') {
+                                nestingCount++;
+                            } else if (source.charAt(i) == '*' && next == '/') {
+                                nestingCount--;
+                            }
+                            i++;
+                        }
+                        if (i < length) {
+                            i++;  // The `/` of the closing `*/`
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        return boundaries;
+    }
+}
@@ -0,0 +1,94 @@
+package com.craftinginterpreters;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelScannerTest {
+
+    private static final List<String> FRAGMENTS = List.of(
+            "var foo = 123 + \"bar\";\n",
+            "print foo * 12.5 <= .5;\n",
+            "// a line comment with \"quotes\" and /* an opener\n",
+            "/* a block comment\n spanning // lines\n */ x = 1;\n",
+            "/* nested /* block\n */ comments \"with quotes\n */ y = 2;\n",
+            "var s = \"a string\nspanning\nlines\";\n",
+            "if (a != b and c == d) { return nil; }\n",
+            "\n\n\t  \n"
+    );
+
+    // Shared by every test and shut down after the last one, so the suite doesn't leak its workers
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterAll
+    static void shutDownPool() {
+        POOL.shutdown();
+    }
+
+    @Test
+    void testMatchesSequentialScan() {
+        var random = new Random(7);
+        var source = new StringBuilder();
+        while (source.length() < 20_000) {
+            source.append(FRAGMENTS.get(random.nextInt(FRAGMENTS.size())));
+        }
+
+        var expected = new Scanner(source).scanTokens();
+        var actual = new ParallelScanner(POOL, 256).scanTokens(source);
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+            assertEquals(expected.get(i).offset, actual.get(i).offset);
+        }
+    }
+
+    @Test
+    void testGivesUpAtErrorLimitLikeSequentialScan() {
+        var source = "var @ = 1;\n".repeat(2 * Lexer.MAX_ERRORS);
+
+        var expectedErrors = new CollectingErrorReporter(Integer.MAX_VALUE);
+        var expected = new Scanner(source, expectedErrors).scanTokens();
+        var actualErrors = new CollectingErrorReporter(Integer.MAX_VALUE);
+        var actual = new ParallelScanner(POOL, 256).scanTokens(source, actualErrors);
+
+        assertEquals(expected, actual);
+        assertEquals(expectedErrors.errorCount(), actualErrors.errorCount());
+        assertEquals(Diagnostic.Kind.TOO_MANY_ERRORS, actualErrors.diagnostics().get(Lexer.MAX_ERRORS).kind());
+    }
+
+    @Test
+    void testHonoursItsOwnErrorLimit() {
+        var source = "var @ = 1;\n".repeat(200);
+
+        var expectedErrors = new CollectingErrorReporter(Integer.MAX_VALUE);
+        var expected = new Scanner(source, expectedErrors);
+        expected.setErrorLimit(5);
+        var actualErrors = new CollectingErrorReporter(Integer.MAX_VALUE);
+        var parallel = new ParallelScanner(POOL, 256);
+        parallel.setErrorLimit(5);
+
+        assertEquals(expected.scanTokens(), parallel.scanTokens(source, actualErrors));
+        assertEquals(6, actualErrors.errorCount());
+        assertEquals(Diagnostic.Kind.TOO_MANY_ERRORS, actualErrors.diagnostics().get(5).kind());
+        assertThrows(IllegalArgumentException.class, () -> parallel.setErrorLimit(0));
+    }
+
+    @Test
+    void testBoundariesAvoidStringsAndComments() {
+        var source = "a\n\"b\nc\"\n/* d\n/* e\n*/\n*/ f\ng\n";
+        assertEquals(List.of(0, 2, 8, 26), ParallelScanner.findBoundaries(source, 1));
+    }
+
+    @Test
+    void testSmallInputFallsBackToSequential() {
+        var source = "var foo = 1;";
+        var actual = new ParallelScanner().scanTokens(source);
+        assertEquals(6, actual.size());
+    }
+}
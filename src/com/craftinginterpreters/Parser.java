@@ -0,0 +1,223 @@
+package com.craftinginterpreters;
+
+import java.util.Arrays;
+
+import static com.craftinginterpreters.TokenType.*;
+
+/**
+ * Parses a source into an expression tree, following Lox's expression grammar:
+ *
+ *   expression -> equality
+ *   equality   -> comparison ( ( "!=" | "==" ) comparison )*
+ *   comparison -> term ( ( ">" | ">=" | "<" | "<=" ) term )*
+ *   term       -> factor ( ( "-" | "+" ) factor )*
+ *   factor     -> unary ( ( "/" | "*" ) unary )*
+ *   unary      -> ( "!" | "-" ) unary | primary
+ *   primary    -> NUMBER | STRING | "true" | "false" | "nil" | "(" expression ")"
+ *
+ * Binary operators are parsed by precedence climbing, but without recursion: pending operators and
+ * opening parentheses wait on an explicit stack, and finished subexpressions on another, so nesting depth
+ * is only limited by the heap. Machine-generated expressions nested 100,000 deep parse fine.
+ *
+ * Tokens are pulled from the Lexer as they're needed into a small ring buffer of lookahead, rather than
+ * scanning the whole source into a list first.
+ */
+class Parser {
+    // Capacity of the lookahead ring buffer, a power of two. One token of lookahead is all expressions need.
+    private static final int LOOKAHEAD = 4;
+
+    // What an entry on the operator stack is waiting for
+    private static final byte PREFIX = 0;
+    private static final byte BINARY = 1;
+    private static final byte GROUP = 2;
+
+    private final Lexer lexer;
+    private final ErrorReporter reporter;
+
+    private final Token[] lookahead = new Token[LOOKAHEAD];
+    private int head = 0;
+    private int buffered = 0;
+
+    private Token[] operators = new Token[16];
+    private byte[] operatorKinds = new byte[16];
+    private int operatorCount = 0;
+    private Expr[] operands = new Expr[16];
+    private int operandCount = 0;
+
+    Parser(Lexer lexer, ErrorReporter reporter) {
+        this.lexer = lexer;
+        this.reporter = reporter;
+    }
+
+    /**
+     * Parse the whole source as a single expression. Returns null if it has a syntax error, which is
+     * reported first.
+     */
+    Expr parse() {
+        try {
+            var expr = expression();
+            if (peek(0).type != EOF) {
+                throw error(peek(0), Diagnostic.Kind.EXPECT_END_OF_EXPRESSION);
+            }
+            return expr;
+        } catch (ParseError error) {
+            return null;
+        }
+    }
+
+    private Expr expression() {
+        operatorCount = 0;
+        operandCount = 0;
+
+        for (;;) {
+            // An operand, possibly after prefix operators and opening parentheses
+            var token = advance();
+            switch (token.type) {
+                case BANG:
+                case MINUS:
+                    pushOperator(token, PREFIX);
+                    continue;
+                case LEFT_PAREN:
+                    pushOperator(token, GROUP);
+                    continue;
+                case NUMBER:
+                case STRING:
+                    pushOperand(new Expr.Literal(token.literal));
+                    break;
+                case TRUE:
+                    pushOperand(new Expr.Literal(true));
+                    break;
+                case FALSE:
+                    pushOperand(new Expr.Literal(false));
+                    break;
+                case NIL:
+                    pushOperand(new Expr.Literal(null));
+                    break;
+                default:
+                    throw error(token, Diagnostic.Kind.EXPECT_EXPRESSION);
+            }
+
+            // Then the operators after it, until one expects another operand
+            for (;;) {
+                var next = peek(0);
+                var precedence = precedence(next.type);
+                if (precedence > 0) {
+                    // Left associative: finish everything pending that binds at least as tightly
+                    reduce(precedence);
+                    pushOperator(advance(), BINARY);
+                    break;
+                }
+
+                reduce(0);
+                if (operatorCount == 0) {
+                    return operands[--operandCount];
+                }
+                // What's left on top is the innermost open parenthesis
+                if (next.type != RIGHT_PAREN) {
+                    throw error(next, Diagnostic.Kind.EXPECT_RIGHT_PAREN);
+                }
+                advance();
+                operatorCount--;
+                operands[operandCount - 1] = new Expr.Grouping(operands[operandCount - 1]);
+            }
+        }
+    }
+
+    /**
+     * Build the nodes for the pending operators that bind at least as tightly as `precedence`, stopping
+     * at an open parenthesis. Prefix operators bind tighter than any binary operator.
+     */
+    private void reduce(int precedence) {
+        while (operatorCount > 0) {
+            var kind = operatorKinds[operatorCount - 1];
+            var operator = operators[operatorCount - 1];
+            if (kind == GROUP || (kind == BINARY && precedence(operator.type) < precedence)) {
+                return;
+            }
+            operatorCount--;
+            if (kind == PREFIX) {
+                operands[operandCount - 1] = new Expr.Unary(operator, operands[operandCount - 1]);
+            } else {
+                var right = operands[--operandCount];
+                operands[operandCount - 1] = new Expr.Binary(operands[operandCount - 1], operator, right);
+            }
+        }
+    }
+
+    /**
+     * Binding power of a binary operator, or 0 if the token isn't one
+     */
+    private static int precedence(TokenType type) {
+        switch (type) {
+            case BANG_EQUAL:
+            case EQUAL_EQUAL:
+                return 1;
+            case GREATER:
+            case GREATER_EQUAL:
+            case LESS:
+            case LESS_EQUAL:
+                return 2;
+            case MINUS:
+            case PLUS:
+                return 3;
+            case SLASH:
+            case STAR:
+                return 4;
+            default:
+                return 0;
+        }
+    }
+
+    private void pushOperator(Token operator, byte kind) {
+        if (operatorCount == operators.length) {
+            operators = Arrays.copyOf(operators, operatorCount * 2);
+            operatorKinds = Arrays.copyOf(operatorKinds, operatorCount * 2);
+        }
+        operators[operatorCount] = operator;
+        operatorKinds[operatorCount++] = kind;
+    }
+
+    private void pushOperand(Expr operand) {
+        if (operandCount == operands.length) {
+            operands = Arrays.copyOf(operands, operandCount * 2);
+        }
+        operands[operandCount++] = operand;
+    }
+
+    /**
+     * The token `distance` ahead of the next one to be consumed, pulling tokens from the lexer as needed
+     */
+    private Token peek(int distance) {
+        while (buffered <= distance) {
+            lookahead[(head + buffered++) & (LOOKAHEAD - 1)] = lexer.nextToken();
+        }
+        return lookahead[(head + distance) & (LOOKAHEAD - 1)];
+    }
+
+    private Token advance() {
+        var token = peek(0);
+        // The lexer keeps returning EOF, but there's no need to ask it again
+        if (token.type != EOF) {
+            lookahead[head] = null;
+            head = (head + 1) & (LOOKAHEAD - 1);
+            buffered--;
+        }
+        return token;
+    }
+
+    private ParseError error(Token token, Diagnostic.Kind kind) {
+        reporter.report(new Diagnostic(kind, token.offset, 0));
+        return new ParseError();
+    }
+
+    /**
+     * Unwinds the parser out of a syntax error, once it has been reported
+     */
+    private static final class ParseError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ParseError() {
+            super(null, null, false, false);
+        }
+    }
+}
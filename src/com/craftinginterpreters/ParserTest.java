@@ -0,0 +1,116 @@
+package com.craftinginterpreters;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParserTest {
+
+    @Test
+    void testPrecedenceAndAssociativity() {
+        assertEquals("(+ 1.0 (* 2.0 3.0))", parse("1 + 2 * 3"));
+        assertEquals("(- (- 1.0 2.0) 3.0)", parse("1 - 2 - 3"));
+        assertEquals("(* (group (+ 1.0 2.0)) 3.0)", parse("(1 + 2) * 3"));
+        assertEquals("(== (< 1.0 2.0) (>= 3.0 4.0))", parse("1 < 2 == 3 >= 4"));
+        assertEquals("(!= (! true) (- (- 2.0)))", parse("!true != --2"));
+        assertEquals("(* (- 1.0) (- (group 2.0)))", parse("-1 * -(2)"));
+        assertEquals("(+ foo nil)", parse("\"foo\" + nil"));
+        assertEquals("(/ (/ 8.0 (- 4.0)) false)", parse("8 / -4 / false"));
+    }
+
+    @Test
+    void testMatchesEvaluatedSemantics() {
+        var expr = new Parser(new Scanner("(1 + 2) * 3 - 4 / 2 == 7"), new CollectingErrorReporter()).parse();
+        assertEquals(true, new Evaluator().evaluate(expr));
+    }
+
+    @Test
+    void testSyntaxErrors() {
+        assertError("1 +", Diagnostic.Kind.EXPECT_EXPRESSION, 3);
+        assertError("(1 + 2", Diagnostic.Kind.EXPECT_RIGHT_PAREN, 6);
+        assertError("(1 2)", Diagnostic.Kind.EXPECT_RIGHT_PAREN, 3);
+        assertError("1 + 2)", Diagnostic.Kind.EXPECT_END_OF_EXPRESSION, 5);
+        assertError("* 2", Diagnostic.Kind.EXPECT_EXPRESSION, 0);
+        assertError("", Diagnostic.Kind.EXPECT_EXPRESSION, 0);
+    }
+
+    @Test
+    void testDeeplyNestedExpressions() {
+        var depth = 100_000;
+        var parens = "(".repeat(depth) + "1" + ")".repeat(depth);
+        Expr expr = new Parser(new Scanner(parens), new CollectingErrorReporter()).parse();
+        for (int i = 0; i < depth; i++) {
+            expr = ((Expr.Grouping) expr).expression;
+        }
+        assertEquals(1., ((Expr.Literal) expr).value);
+
+        var negations = "-".repeat(depth) + "(1 + 2)";
+        expr = new Parser(new Scanner(negations), new CollectingErrorReporter()).parse();
+        for (int i = 0; i < depth; i++) {
+            expr = ((Expr.Unary) expr).right;
+        }
+        assertInstanceOf(Expr.Grouping.class, expr);
+
+        // Right nested: 1 + (1 + (1 + ...))
+        var rightNested = "1 + (".repeat(depth) + "1" + ")".repeat(depth);
+        expr = new Parser(new Scanner(rightNested), new CollectingErrorReporter()).parse();
+        for (int i = 0; i < depth; i++) {
+            expr = ((Expr.Grouping) ((Expr.Binary) expr).right).expression;
+        }
+        assertEquals(1., ((Expr.Literal) expr).value);
+    }
+
+    @Test
+    void testWideExpressions() {
+        var terms = 100_000;
+        var source = new StringBuilder("0");
+        for (int i = 1; i < terms; i++) {
+            source.append(i % 2 == 0 ? " + " : " * ").append(i);
+        }
+        Expr expr = new Parser(new Scanner(source), new CollectingErrorReporter()).parse();
+        // Left associative, so the spine runs down the left
+        var additions = 0;
+        while (expr instanceof Expr.Binary) {
+            var binary = (Expr.Binary) expr;
+            if (binary.operator.type == TokenType.PLUS) {
+                additions++;
+            }
+            expr = binary.left;
+        }
+        assertEquals((terms - 1) / 2, additions);
+    }
+
+    private static String parse(String source) {
+        var errors = new CollectingErrorReporter();
+        var expr = new Parser(new Scanner(source, errors), errors).parse();
+        assertFalse(errors.hadError(), errors.diagnostics().toString());
+        return print(expr);
+    }
+
+    private static void assertError(String source, Diagnostic.Kind kind, int offset) {
+        var errors = new CollectingErrorReporter();
+        assertNull(new Parser(new Scanner(source, errors), errors).parse());
+        assertEquals(1, errors.errorCount(), source);
+        assertEquals(kind, errors.diagnostics().get(0).kind(), source);
+        assertEquals(offset, errors.diagnostics().get(0).offset(), source);
+    }
+
+    /**
+     * Lisp-like text of a tree, making the structure explicit
+     */
+    private static String print(Expr expr) {
+        if (expr instanceof Expr.Binary) {
+            var binary = (Expr.Binary) expr;
+            return "(" + binary.operator.lexeme + " " + print(binary.left) + " " + print(binary.right) + ")";
+        }
+        if (expr instanceof Expr.Grouping) {
+            return "(group " + print(((Expr.Grouping) expr).expression) + ")";
+        }
+        if (expr instanceof Expr.Unary) {
+            var unary = (Expr.Unary) expr;
+            return "(" + unary.operator.lexeme + " " + print(unary.right) + ")";
+        }
+        var value = ((Expr.Literal) expr).value;
+        return value == null ? "nil" : value.toString();
+    }
+}
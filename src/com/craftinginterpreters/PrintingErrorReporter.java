@@ -0,0 +1,29 @@
+package com.craftinginterpreters;
+
+import java.io.PrintStream;
+
+/**
+ * Prints each diagnostic as soon as it is reported, the way jlox always has, with the line and column it
+ * starts at looked up in the source's LineMap. That is only built once there's an error to print.
+ */
+public class PrintingErrorReporter implements ErrorReporter {
+    private final PrintStream out;
+    private final LineMap lines;
+    private boolean hadError = false;
+
+    public PrintingErrorReporter(PrintStream out, CharSequence source) {
+        this.out = out;
+        this.lines = new LineMap(source);
+    }
+
+    @Override
+    public void report(Diagnostic diagnostic) {
+        out.println(diagnostic.toString(lines));
+        hadError = true;
+    }
+
+    @Override
+    public boolean hadError() {
+        return hadError;
+    }
+}
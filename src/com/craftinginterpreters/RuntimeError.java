@@ -0,0 +1,16 @@
+package com.craftinginterpreters;
+
+/**
+ * An error found while evaluating Lox code, e.g. an operand of the wrong type
+ */
+class RuntimeError extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    // The operator the error is attributed to, or null if there isn't one (e.g. a bare literal)
+    final Token token;
+
+    RuntimeError(Token token, String message) {
+        super(message);
+        this.token = token;
+    }
+}
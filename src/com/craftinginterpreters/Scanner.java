@@ -1,41 +1,149 @@
 package com.craftinginterpreters;
 
-import java.text.MessageFormat;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 import static com.craftinginterpreters.TokenType.*;
 
-public class Scanner {
-    private final String source;
-    private final List<Token> tokens = new ArrayList<Token>();
+public class Scanner implements Lexer {
+    // Every metrics call is guarded by ScannerMetrics.ENABLED, so the JIT drops them when metrics are off
+    private static final ScannerMetrics METRICS = ScannerMetrics.GLOBAL;
+
+    private CharSequence source;
+    private ErrorReporter reporter;
+    // The range of the source this scanner covers
+    private int origin;
+    private int end;
 
     // The position in the source string of the first character of the current lexeme being tokenized
     private int start = 0;
     // The position in the source string of the scanner cursor
     private int current = 0;
-    // The line in the source string of the `current` cursor
-    private int line = 1;
+    // The token produced by the most recent call to scanToken(), if any. Whitespace and comments produce none.
+    private Token scanned = null;
+    // When filling a TokenBuffer, tokens are appended here instead of being materialized as Token objects
+    private TokenBuffer buffer = null;
+    // Canonical Strings for the identifiers and string literals seen since the last reset()
+    private SymbolTable symbols = new SymbolTable();
+    // Errors reported since the last reset(), and how many to give up after
+    private int errorCount = 0;
+    private int errorLimit = MAX_ERRORS;
 
     public Scanner(String source) {
+        this((CharSequence) source);
+    }
+
+    /**
+     * Scan any character source, e.g. a MappedSource lexing straight over the bytes of a file.
+     * Errors are printed to stderr.
+     */
+    public Scanner(CharSequence source) {
+        this(source, new PrintingErrorReporter(System.err, source));
+    }
+
+    public Scanner(CharSequence source, ErrorReporter reporter) {
+        this(source, 0, source.length(), reporter);
+    }
+
+    /**
+     * Scan only source[from, to). The range must start outside of any string literal or comment. Offsets
+     * in tokens and errors are still relative to the whole source.
+     */
+    Scanner(CharSequence source, int from, int to, ErrorReporter reporter) {
         this.source = source;
+        this.reporter = reporter;
+        this.origin = from;
+        this.end = to;
+        reset();
     }
 
+    @Override
     public List<Token> scanTokens() {
         reset();
 
+        var tokens = new ArrayList<Token>();
+        Token token;
+        do {
+            token = nextToken();
+            tokens.add(token);
+        } while (token.type != EOF);
+
+        return tokens;
+    }
+
+    @Override
+    public Token nextToken() {
         while (!isAtEnd()) {
             start = current;
             scanToken();
+            if (ScannerMetrics.ENABLED) {
+                METRICS.scanned(current - start);
+            }
+            if (scanned != null) {
+                var token = scanned;
+                scanned = null;
+                if (ScannerMetrics.ENABLED) {
+                    METRICS.token(token.type);
+                }
+                return token;
+            }
         }
 
-        tokens.add(new Token(TokenType.EOF, "", null, line));
-        return tokens;
+        start = current;
+        if (ScannerMetrics.ENABLED) {
+            METRICS.token(EOF);
+            METRICS.allocated(ScannerMetrics.TOKEN_BYTES);
+        }
+        return new Token(EOF, "", null, start);
+    }
+
+    /**
+     * Scan the whole source into a compact TokenBuffer, ending with an EOF token, without creating
+     * Token objects, lexeme Strings or boxed literals.
+     */
+    public TokenBuffer scanTokenBuffer() {
+        return scanInto(new TokenBuffer(source));
+    }
+
+    /**
+     * The table the identifiers and string literals of the current scan were interned in
+     */
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
+    /**
+     * Scan the whole source into the given buffer, which must have been created over the same source.
+     * The buffer is cleared first so one can be reused across scans.
+     */
+    public TokenBuffer scanInto(TokenBuffer buffer) {
+        reset();
+        buffer.clear(symbols);
+
+        this.buffer = buffer;
+        try {
+            while (!isAtEnd()) {
+                start = current;
+                scanToken();
+            }
+            start = current;
+            buffer.add(EOF, start, 0);
+        } finally {
+            this.buffer = null;
+        }
+
+        if (ScannerMetrics.ENABLED) {
+            METRICS.scanned(end - origin);
+            for (int i = 0; i < buffer.size(); i++) {
+                METRICS.token(buffer.type(i));
+            }
+        }
+
+        return buffer;
     }
 
     private boolean isAtEnd() {
-        return current >= source.length();
+        return current >= end;
     }
 
     private void scanToken() {
@@ -58,15 +166,22 @@ public class Scanner {
             case '/':
                 // A comment: `//` -- ignore characters until end of line
                 if (matchNext('/')) {
-                    while (peekNext() != '\n' && !isAtEnd()) advance();
+                    current = CharSearch.indexOf(source, '\n', current, end);
                 } else if (matchNext('*')) {
+                    var started = startSection();
                     blockComment();
+                    endSection(ScannerMetrics.Section.BLOCK_COMMENT, started);
                 } else {
                     addToken(SLASH);
                 }
                 break;
             // Literals
-            case '"': string(); break;
+            case '"': {
+                var started = startSection();
+                string();
+                endSection(ScannerMetrics.Section.STRING, started);
+                break;
+            }
             case '1':
             case '2':
             case '3':
@@ -76,25 +191,76 @@ public class Scanner {
             case '7':
             case '8':
             case '9':
-            case '0': number(); break;
-            // Ignore whitespace
+            case '0': {
+                var started = startSection();
+                number();
+                endSection(ScannerMetrics.Section.NUMBER, started);
+                break;
+            }
+            // Ignore whitespace, skipping the rest of a run of it in bulk
             case ' ':
             case '\r':
             case '\t':
-                break;
             case '\n':
-                line++;
+                current = CharSearch.skipBlanks(source, current, end);
                 break;
             default:
                 if (Character.isAlpha(currentChar)) {
+                    var started = startSection();
                     identifier();
+                    endSection(ScannerMetrics.Section.IDENTIFIER, started);
                 } else {
-                    Lox.report(line, "", MessageFormat.format("Unexpected character {0}", peekNext()));
+                    // One error for a whole run of them, so a binary blob doesn't produce one per byte
+                    while (!isAtEnd() && cannotStartToken(peekNext())) {
+                        advance();
+                    }
+                    report(new Diagnostic(Diagnostic.Kind.UNEXPECTED_CHARACTER, start, currentChar,
+                            current - start));
                 }
         }
 
     }
 
+    /**
+     * Whether no token, whitespace or comment can start with `c`
+     */
+    static boolean cannotStartToken(char c) {
+        switch (c) {
+            case '(': case ')': case '{': case '}': case ',': case '.': case '-': case '+': case ';': case '*':
+            case '!': case '=': case '>': case '<': case '/': case '"': case ' ': case '\r': case '\t': case '\n':
+                return false;
+            default:
+                return !Character.isAlphaNumeric(c);
+        }
+    }
+
+    private static long startSection() {
+        return ScannerMetrics.ENABLED ? System.nanoTime() : 0;
+    }
+
+    private static void endSection(ScannerMetrics.Section section, long started) {
+        if (ScannerMetrics.ENABLED) {
+            METRICS.section(section, System.nanoTime() - started);
+        }
+    }
+
+    private void report(Diagnostic diagnostic) {
+        if (ScannerMetrics.ENABLED) {
+            METRICS.error(diagnostic.kind);
+        }
+        reporter.report(diagnostic);
+        if (++errorCount == errorLimit) {
+            var gaveUp = new Diagnostic(Diagnostic.Kind.TOO_MANY_ERRORS, current, 0);
+            current = end;
+            report(gaveUp);
+        }
+    }
+
+    @Override
+    public void setErrorLimit(int errorLimit) {
+        this.errorLimit = Lexer.checkErrorLimit(errorLimit);
+    }
+
     private char advance() {
         // current++ returns the current value of the var, _then_ increments afterward
         return source.charAt(current++);
@@ -120,7 +286,7 @@ public class Scanner {
 
     private char peekAhead(int count) {
         var ahead = Math.abs(count);
-        if (current + ahead >= source.length()) return '\0';
+        if (current + ahead >= end) return '\0';
 
         return source.charAt(current + ahead);
     }
@@ -132,22 +298,28 @@ public class Scanner {
      * TODO: Single line strings only!
      */
     private void string() {
-        while (peekNext() != '"' && !isAtEnd()) {
-            if (peekNext() == '\n') {
-                line++;
-            }
-            advance();
-        }
+        var closingQuote = CharSearch.indexOf(source, '"', current, end);
+        current = closingQuote;
         if (isAtEnd()) {
-            Lox.report(line, "", MessageFormat.format("Unterminated string literal starting at line {0}, source char {1}", line, start));
+            report(new Diagnostic(Diagnostic.Kind.UNTERMINATED_STRING, start, 0));
             return;
         }
 
         advance();  // The closing "
 
         // Trim the surrounding quotes
-        var theString = source.substring(start + 1, current - 1);
-        addToken(STRING, theString);
+        var symbol = symbols.id(source, start + 1, current - 1);
+        if (buffer != null) {
+            buffer.addSymbol(STRING, start, current - start, symbol);
+            return;
+        }
+        // Only the literal is interned, so a string takes one symbol id here just as it does in a TokenBuffer
+        var lexeme = source.subSequence(start, current).toString();
+        scanned = new Token(STRING, lexeme, symbols.symbol(symbol), start);
+        if (ScannerMetrics.ENABLED) {
+            // The literal is interned, so usually shared with earlier tokens
+            METRICS.allocated(ScannerMetrics.TOKEN_BYTES + ScannerMetrics.stringBytes(lexeme.length()));
+        }
     }
 
     /**
@@ -158,6 +330,7 @@ public class Scanner {
      * if we allow things like calling functions on number literals. For example: `4.sqrt()`
      */
     private void number() {
+        // The first digit has already been consumed by scanToken()
         while (Character.isDigit(peekNext())) {
             advance();
         }
@@ -170,7 +343,45 @@ public class Scanner {
             }
         }
 
-        addToken(NUMBER, Double.parseDouble(source.substring(start, current)));
+        var value = numberValue(source, start, current);
+        if (buffer != null) {
+            buffer.addNumber(start, current - start, value);
+        } else {
+            addToken(NUMBER, value);
+        }
+    }
+
+    /**
+     * The value of the number literal source[start, end)
+     *
+     * The digits are accumulated into a long. As long as they all fit exactly in a double's 53 bit mantissa
+     * and the power of ten to divide by is itself exact, a single division is correctly rounded and so
+     * gives the same bits Double.parseDouble would (Clinger's fast path). Anything longer falls back to
+     * parsing the lexeme.
+     */
+    static double numberValue(CharSequence source, int start, int end) {
+        long mantissa = 0;
+        var exact = true;
+        var fractionDigits = -1;
+
+        for (int i = start; i < end; i++) {
+            var c = source.charAt(i);
+            if (c == '.') {
+                fractionDigits = 0;
+                continue;
+            }
+            mantissa = mantissa * 10 + (c - '0');
+            exact &= mantissa <= MAX_EXACT_MANTISSA;
+            if (fractionDigits >= 0) {
+                fractionDigits++;
+            }
+        }
+        fractionDigits = Math.max(fractionDigits, 0);
+
+        if (exact && fractionDigits < EXACT_POWERS_OF_TEN.length) {
+            return mantissa / EXACT_POWERS_OF_TEN[fractionDigits];
+        }
+        return Double.parseDouble(source.subSequence(start, end).toString());
     }
 
     private void identifier() {
@@ -178,12 +389,18 @@ public class Scanner {
             advance();
         }
 
-        var lexeme = source.substring(start, current);
-        var tokenType = keywords.get(lexeme);
-        if (tokenType == null) {
-            tokenType = IDENTIFIER;
+        var tokenType = Keywords.lookup(source, start, current);
+        var symbol = symbols.id(source, start, current);
+        if (buffer != null) {
+            buffer.addSymbol(tokenType, start, current - start, symbol);
+            return;
+        }
+        // Identifiers and keywords carry their lexeme as their literal too
+        var lexeme = symbols.symbol(symbol);
+        scanned = new Token(tokenType, lexeme, lexeme, start);
+        if (ScannerMetrics.ENABLED) {
+            METRICS.allocated(ScannerMetrics.TOKEN_BYTES);
         }
-        addToken(tokenType, lexeme);
     }
 
     private void blockComment() {
@@ -195,19 +412,15 @@ public class Scanner {
             } else if (peekNext() == '*' && peekAhead(1) == '/') {
                 nestingCount--;
             }
-            if (peekNext() == '\n') {
-                line++;
-            }
             advance();
         }
 
         if (isAtEnd()) {
-            Lox.report(line, "", MessageFormat.format("Unterminated block comment starting at source char {0}", start));
+            report(new Diagnostic(Diagnostic.Kind.UNTERMINATED_BLOCK_COMMENT, start, 0));
             return;
         }
 
-        // The closing `*/`
-        advance();
+        // The loop above stops having consumed the `*` of the closing `*/`
         advance();
     }
 
@@ -216,36 +429,41 @@ public class Scanner {
     }
 
     private void addToken(TokenType tokenType, Object literal) {
-        var text = source.substring(start, current);
-        tokens.add(new Token(tokenType, text, literal, line));
+        if (buffer != null) {
+            buffer.add(tokenType, start, current - start);
+            return;
+        }
+        var text = source.subSequence(start, current).toString();
+        scanned = new Token(tokenType, text, literal, start);
+        if (ScannerMetrics.ENABLED) {
+            METRICS.allocated(ScannerMetrics.TOKEN_BYTES + ScannerMetrics.stringBytes(text.length())
+                    + (literal != null ? ScannerMetrics.DOUBLE_BYTES : 0));
+        }
     }
 
     public void reset() {
-        tokens.clear();
-        start = 0;
-        current = 0;
-        line = 1;
-    }
-
-    private static final HashMap<String, TokenType> keywords;
-
-    static {
-        keywords = new HashMap<>();
-        keywords.put("and",    AND);
-        keywords.put("class",  CLASS);
-        keywords.put("else",   ELSE);
-        keywords.put("false",  FALSE);
-        keywords.put("for",    FOR);
-        keywords.put("fun",    FUN);
-        keywords.put("if",     IF);
-        keywords.put("nil",    NIL);
-        keywords.put("or",     OR);
-        keywords.put("print",  PRINT);
-        keywords.put("return", RETURN);
-        keywords.put("super",  SUPER);
-        keywords.put("this",   THIS);
-        keywords.put("true",   TRUE);
-        keywords.put("var",    VAR);
-        keywords.put("while",  WHILE);
+        scanned = null;
+        // A fresh table rather than clearing it, since tokens from the previous scan may still refer to it
+        symbols = new SymbolTable();
+        errorCount = 0;
+        start = origin;
+        current = origin;
     }
+
+    @Override
+    public void reset(CharSequence source, ErrorReporter reporter) {
+        this.source = source;
+        this.reporter = reporter;
+        this.origin = 0;
+        this.end = source.length();
+        reset();
+    }
+
+    // Largest integer every smaller non-negative integer of which is exactly representable as a double
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    // 10^22 is the largest power of ten that is exactly representable as a double
+    private static final double[] EXACT_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22,
+    };
 }
@@ -0,0 +1,59 @@
+package com.craftinginterpreters;
+
+/**
+ * Where the scanner reports what it's doing, for finding out where front end time goes.
+ *
+ * Off by default. Run with -Dlox.metrics=true to have every Scanner and DfaScanner report to a
+ * CountingScannerMetrics. Both check ENABLED, a static final constant, before every call, so when metrics
+ * are off the JIT removes the calls (and the clock reads around them) entirely.
+ */
+public interface ScannerMetrics {
+    boolean ENABLED = Boolean.getBoolean("lox.metrics");
+
+    ScannerMetrics NONE = new ScannerMetrics() {};
+
+    /**
+     * The metrics every lexer reports to: a CountingScannerMetrics when ENABLED, otherwise NONE
+     */
+    ScannerMetrics GLOBAL = ENABLED ? new CountingScannerMetrics() : NONE;
+
+    /**
+     * The scanning routines that are timed
+     */
+    enum Section {
+        STRING,
+        NUMBER,
+        IDENTIFIER,
+        BLOCK_COMMENT,
+    }
+
+    // Estimated sizes on a 64-bit JVM with compressed oops and compact strings
+    int TOKEN_BYTES = 32;
+    int DOUBLE_BYTES = 16;
+
+    static int stringBytes(int length) {
+        // The String, plus its byte[] rounded up to the 8 byte object alignment
+        return 24 + ((16 + length + 7) & ~7);
+    }
+
+    /**
+     * Source characters consumed, whitespace and comments included
+     */
+    default void scanned(int chars) {
+    }
+
+    default void token(TokenType type) {
+    }
+
+    default void error(Diagnostic.Kind kind) {
+    }
+
+    default void section(Section section, long nanos) {
+    }
+
+    /**
+     * An estimate of the bytes allocated for a Token object, its lexeme and its literal
+     */
+    default void allocated(long bytes) {
+    }
+}
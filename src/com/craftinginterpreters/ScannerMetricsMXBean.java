@@ -0,0 +1,22 @@
+package com.craftinginterpreters;
+
+import java.util.Map;
+
+/**
+ * The JMX view of CountingScannerMetrics, registered as com.craftinginterpreters:type=ScannerMetrics
+ */
+public interface ScannerMetricsMXBean {
+    long getCharsScanned();
+
+    Map<String, Long> getTokenCounts();
+
+    Map<String, Long> getErrorCounts();
+
+    Map<String, Long> getSectionCalls();
+
+    Map<String, Long> getSectionNanos();
+
+    long getEstimatedAllocatedBytes();
+
+    void reset();
+}
@@ -1,15 +1,32 @@
 package com.craftinginterpreters;
 
-import static org.junit.jupiter.api.Assertions.assertArrayEquals;
-
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class ScannerTest {
 
+    /**
+     * The lexer under test. Subclasses run every test here against another Lexer.
+     */
+    Lexer lexer(CharSequence source, ErrorReporter reporter) {
+        return new Scanner(source, reporter);
+    }
+
+    private Lexer lexer(CharSequence source) {
+        return lexer(source, new PrintingErrorReporter(System.err, source));
+    }
+
     @Test
     void testComments() {
         var source =
@@ -18,28 +35,28 @@ class ScannerTest {
                         // bar
                         {} // baz
                         """;
-        var scanner = new Scanner(source);
+        var scanner = lexer(source);
         var actual = scanner.scanTokens();
         var expected = List.of(
-                new Token(TokenType.LEFT_BRACE, "{", null, 3),
-                new Token(TokenType.RIGHT_BRACE, "}", null, 3),
-                new Token(TokenType.EOF, "", null, 3)
+                new Token(TokenType.LEFT_BRACE, "{", null),
+                new Token(TokenType.RIGHT_BRACE, "}", null),
+                new Token(TokenType.EOF, "", null)
         );
         assertTokensEqual(expected, actual);
     }
 
     @Test
     void testOperators() {
-        var scanner = new Scanner("<= >= ===><");
+        var scanner = lexer("<= >= ===><");
         var actual = scanner.scanTokens();
         var expected = List.of(
-                new Token(TokenType.LESS_EQUAL, "<=", null, 1),
-                new Token(TokenType.GREATER_EQUAL, ">=", null, 1),
-                new Token(TokenType.EQUAL_EQUAL, "==", null, 1),
-                new Token(TokenType.EQUAL, "=", null, 1),
-                new Token(TokenType.GREATER, ">", null, 1),
-                new Token(TokenType.LESS, "<", null, 1),
-                new Token(TokenType.EOF, "", null, 1)
+                new Token(TokenType.LESS_EQUAL, "<=", null),
+                new Token(TokenType.GREATER_EQUAL, ">=", null),
+                new Token(TokenType.EQUAL_EQUAL, "==", null),
+                new Token(TokenType.EQUAL, "=", null),
+                new Token(TokenType.GREATER, ">", null),
+                new Token(TokenType.LESS, "<", null),
+                new Token(TokenType.EOF, "", null)
         );
         assertTokensEqual(expected, actual);
     }
@@ -52,183 +69,498 @@ class ScannerTest {
                         (( )){} // grouping stuff
                         !*+-/=<> <= == // operators
                         """;
-        var scanner = new Scanner(source);
+        var scanner = lexer(source);
         var actual = scanner.scanTokens();
         var expected = List.of(
-                new Token(TokenType.LEFT_PAREN, "(", null, 1),
-                new Token(TokenType.LEFT_PAREN, "(", null, 1),
-                new Token(TokenType.RIGHT_PAREN, ")", null, 1),
-                new Token(TokenType.RIGHT_PAREN, ")", null, 1),
-                new Token(TokenType.LEFT_BRACE, "{", null, 1),
-                new Token(TokenType.RIGHT_BRACE, "}", null, 1),
-                new Token(TokenType.BANG, "!", null, 1),
-                new Token(TokenType.STAR, "*", null, 1),
-                new Token(TokenType.PLUS, "+", null, 1),
-                new Token(TokenType.MINUS, "-", null, 1),
-                new Token(TokenType.SLASH, "/", null, 1),
-                new Token(TokenType.EQUAL, "=", null, 1),
-                new Token(TokenType.LESS, "<", null, 1),
-                new Token(TokenType.GREATER, ">", null, 1),
-                new Token(TokenType.LESS_EQUAL, "<=", null, 1),
-                new Token(TokenType.EQUAL_EQUAL, "==", null, 1),
-                new Token(TokenType.EOF, "", null, 1)
+                new Token(TokenType.LEFT_PAREN, "(", null),
+                new Token(TokenType.LEFT_PAREN, "(", null),
+                new Token(TokenType.RIGHT_PAREN, ")", null),
+                new Token(TokenType.RIGHT_PAREN, ")", null),
+                new Token(TokenType.LEFT_BRACE, "{", null),
+                new Token(TokenType.RIGHT_BRACE, "}", null),
+                new Token(TokenType.BANG, "!", null),
+                new Token(TokenType.STAR, "*", null),
+                new Token(TokenType.PLUS, "+", null),
+                new Token(TokenType.MINUS, "-", null),
+                new Token(TokenType.SLASH, "/", null),
+                new Token(TokenType.EQUAL, "=", null),
+                new Token(TokenType.LESS, "<", null),
+                new Token(TokenType.GREATER, ">", null),
+                new Token(TokenType.LESS_EQUAL, "<=", null),
+                new Token(TokenType.EQUAL_EQUAL, "==", null),
+                new Token(TokenType.EOF, "", null)
         );
         assertTokensEqual(expected, actual);
     }
 
     @Test
     void testStringLiteralOneLine() {
-        var scanner = new Scanner("+ \"foo+-*/\" ");
+        var scanner = lexer("+ \"foo+-*/\" ");
         var actual = scanner.scanTokens();
         var expected = List.of(
-                new Token(TokenType.PLUS, "+", null, 1),
-                new Token(TokenType.STRING, "\"foo+-*/\"", "foo+-*/", 1),
-                new Token(TokenType.EOF, "", null, 1)
+                new Token(TokenType.PLUS, "+", null),
+                new Token(TokenType.STRING, "\"foo+-*/\"", "foo+-*/"),
+                new Token(TokenType.EOF, "", null)
         );
         assertTokensEqual(expected, actual);
     }
 
     @Test
     void testStringLiteralTwoLines() {
-        var scanner = new Scanner("+ \"f\noo\" ");
+        var scanner = lexer("+ \"f\noo\" ");
         var actual = scanner.scanTokens();
         var expected = List.of(
-                new Token(TokenType.PLUS, "+", null, 1),
-                new Token(TokenType.STRING, "\"f\noo\"", "f\noo", 2),
-                new Token(TokenType.EOF, "", null, 2)
+                new Token(TokenType.PLUS, "+", null),
+                new Token(TokenType.STRING, "\"f\noo\"", "f\noo"),
+                new Token(TokenType.EOF, "", null)
         );
         assertTokensEqual(expected, actual);
     }
 
     @Test
     void testStringLiteralEOF() {
-        var scanner = new Scanner("+ \"foo ");
+        var errors = new CollectingErrorReporter();
+        var scanner = lexer("+ \"foo ", errors);
         var actual = scanner.scanTokens();
         var expected = List.of(
-                new Token(TokenType.PLUS, "+", null, 1),
-                new Token(TokenType.EOF, "", null, 1)
+                new Token(TokenType.PLUS, "+", null),
+                new Token(TokenType.EOF, "", null)
         );
         assertTokensEqual(expected, actual);
-        assertTrue(Lox.hadError);
+        assertTrue(errors.hadError());
+        assertEquals(Diagnostic.Kind.UNTERMINATED_STRING, errors.diagnostics().get(0).kind());
+    }
+
+    @Test
+    void testErrorsAreCappedButCounted() {
+        var errors = new CollectingErrorReporter(2);
+        lexer("@ # $ % ^", errors).scanTokens();
+        assertEquals(5, errors.errorCount());
+        assertEquals(2, errors.diagnostics().size());
+        assertEquals(0, errors.diagnostics().get(0).offset());
+        assertEquals(2, errors.diagnostics().get(1).offset());
+    }
+
+    @Test
+    void testRunsOfUnexpectedCharactersAreOneError() {
+        var errors = new CollectingErrorReporter();
+        var source = "a @#$\u0000\u00ff+ \u0001~\n`";
+        var actual = lexer(source, errors).scanTokens();
+        var expected = List.of(
+                new Token(TokenType.IDENTIFIER, "a", "a"),
+                new Token(TokenType.PLUS, "+", null),
+                new Token(TokenType.EOF, "", null)
+        );
+        assertTokensEqual(expected, actual);
+
+        var diagnostics = errors.diagnostics();
+        assertEquals(3, diagnostics.size());
+        assertEquals(2, diagnostics.get(0).offset());
+        assertEquals(5, diagnostics.get(0).length());
+        var lines = new LineMap(source);
+        assertEquals("[line 1:3] Error: Unexpected character @, and 4 more", diagnostics.get(0).toString(lines));
+        assertEquals("[line 1:10] Error: Unexpected character \\u0001, and 1 more", diagnostics.get(1).toString(lines));
+        assertEquals("[line 2:1] Error: Unexpected character `", diagnostics.get(2).toString(lines));
+        // Without the source there's only the offset to go by
+        assertEquals("[char 12] Error: Unexpected character `", diagnostics.get(2).toString());
+        assertEquals(1, diagnostics.get(2).length());
+    }
+
+    @Test
+    void testPrintsColumnsGivenTheSource() {
+        var source = "a @\n  \"open";
+        var out = new ByteArrayOutputStream();
+        lexer(source, new PrintingErrorReporter(new PrintStream(out, true, StandardCharsets.UTF_8), source)).scanTokens();
+
+        var expected = String.join(System.lineSeparator(),
+                "[line 1:3] Error: Unexpected character @",
+                "[line 2:3] Error: Unterminated string literal starting at source char 6", "");
+        assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testGivesUpAtErrorLimit() {
+        var errors = new CollectingErrorReporter();
+        var lexer = lexer("@ 1 # 2 $ 3 % 4", errors);
+        lexer.setErrorLimit(2);
+        var actual = lexer.scanTokens();
+
+        assertEquals(List.of(TokenType.NUMBER, TokenType.EOF), actual.stream().map(token -> token.type).toList());
+        assertEquals(15, actual.get(1).offset);
+        assertEquals(3, errors.errorCount());
+        var last = errors.diagnostics().get(2);
+        assertEquals(Diagnostic.Kind.TOO_MANY_ERRORS, last.kind());
+        assertEquals(5, last.offset());
+    }
+
+    @Test
+    void testErrorLimitMustBePositive() {
+        var lexer = lexer("@", new CollectingErrorReporter());
+        assertThrows(IllegalArgumentException.class, () -> lexer.setErrorLimit(0));
+        assertThrows(IllegalArgumentException.class, () -> lexer.setErrorLimit(-1));
+
+        lexer.setErrorLimit(1);
+        var errors = new CollectingErrorReporter();
+        lexer.reset("@ @ @", errors);
+        lexer.scanTokens();
+        assertEquals(2, errors.errorCount());
+        assertEquals(Diagnostic.Kind.TOO_MANY_ERRORS, errors.diagnostics().get(1).kind());
+    }
+
+    @Test
+    void testBinaryInputIsRejectedWithBoundedOutput() {
+        var bytes = new byte[1 << 20];
+        new Random(22).nextBytes(bytes);
+        var errors = new CollectingErrorReporter(Integer.MAX_VALUE);
+        lexer(new MappedSource(ByteBuffer.wrap(bytes)), errors).scanTokens();
+
+        assertEquals(Lexer.MAX_ERRORS + 1, errors.errorCount());
+        assertEquals(Diagnostic.Kind.TOO_MANY_ERRORS, errors.diagnostics().get(Lexer.MAX_ERRORS).kind());
     }
 
     @Test
     void testNumberLiteralInt() {
-        var scanner = new Scanner("+ 123");
+        var scanner = lexer("+ 123");
         var actual = scanner.scanTokens();
         var expected = List.of(
-                new Token(TokenType.PLUS, "+", null, 1),
-                new Token(TokenType.NUMBER, "123", 123., 1),
-                new Token(TokenType.EOF, "", null, 1)
+                new Token(TokenType.PLUS, "+", null),
+                new Token(TokenType.NUMBER, "123", 123.),
+                new Token(TokenType.EOF, "", null)
         );
         assertTokensEqual(expected, actual);
     }
 
     @Test
     void testNumberLiteralDouble() {
-        var scanner = new Scanner("+ 12.3");
+        var scanner = lexer("+ 12.3");
         var actual = scanner.scanTokens();
         var expected = List.of(
-                new Token(TokenType.PLUS, "+", null, 1),
-                new Token(TokenType.NUMBER, "12.3", 12.3, 1),
-                new Token(TokenType.EOF, "", null, 1)
+                new Token(TokenType.PLUS, "+", null),
+                new Token(TokenType.NUMBER, "12.3", 12.3),
+                new Token(TokenType.EOF, "", null)
         );
         assertTokensEqual(expected, actual);
     }
 
     @Test
     void testNumberLiteralCannotStartWithDot() {
-        var scanner = new Scanner("+ .123");
+        var scanner = lexer("+ .123");
         var actual = scanner.scanTokens();
         var expected = List.of(
-                new Token(TokenType.PLUS, "+", null, 1),
-                new Token(TokenType.DOT, ".", null, 1),
-                new Token(TokenType.NUMBER, "123", 123., 1),
-                new Token(TokenType.EOF, "", null, 1)
+                new Token(TokenType.PLUS, "+", null),
+                new Token(TokenType.DOT, ".", null),
+                new Token(TokenType.NUMBER, "123", 123.),
+                new Token(TokenType.EOF, "", null)
         );
         assertTokensEqual(expected, actual);
     }
 
     @Test
     void testNumberLiteralCannotEndWithDot() {
-        var scanner = new Scanner("+ 123.");
+        var scanner = lexer("+ 123.");
         var actual = scanner.scanTokens();
         var expected = List.of(
-                new Token(TokenType.PLUS, "+", null, 1),
-                new Token(TokenType.NUMBER, "123", 123., 1),
-                new Token(TokenType.DOT, ".", null, 1),
-                new Token(TokenType.EOF, "", null, 1)
+                new Token(TokenType.PLUS, "+", null),
+                new Token(TokenType.NUMBER, "123", 123.),
+                new Token(TokenType.DOT, ".", null),
+                new Token(TokenType.EOF, "", null)
         );
         assertTokensEqual(expected, actual);
     }
 
     @Test
     void testIdentifier() {
-        var scanner = new Scanner("var foo = 123 + \"bar\";");
+        var scanner = lexer("var foo = 123 + \"bar\";");
         var actual = scanner.scanTokens();
         var expected = List.of(
-                new Token(TokenType.VAR, "var", "var", 1),
-                new Token(TokenType.IDENTIFIER, "foo", "foo", 1),
-                new Token(TokenType.EQUAL, "=", null, 1),
-                new Token(TokenType.NUMBER, "123", 123., 1),
-                new Token(TokenType.PLUS, "+", null, 1),
-                new Token(TokenType.STRING, "\"bar\"", "bar", 1),
-                new Token(TokenType.SEMICOLON, ";", null, 1),
-                new Token(TokenType.EOF, "", null, 1)
+                new Token(TokenType.VAR, "var", "var"),
+                new Token(TokenType.IDENTIFIER, "foo", "foo"),
+                new Token(TokenType.EQUAL, "=", null),
+                new Token(TokenType.NUMBER, "123", 123.),
+                new Token(TokenType.PLUS, "+", null),
+                new Token(TokenType.STRING, "\"bar\"", "bar"),
+                new Token(TokenType.SEMICOLON, ";", null),
+                new Token(TokenType.EOF, "", null)
         );
         assertTokensEqual(expected, actual);
     }
 
+    @Test
+    void testKeywords() {
+        var scanner = lexer("and class else false for fun if nil or print return super this true var while");
+        var actual = scanner.scanTokens().stream().map(token -> token.type).toList();
+        var expected = List.of(
+                TokenType.AND, TokenType.CLASS, TokenType.ELSE, TokenType.FALSE, TokenType.FOR, TokenType.FUN,
+                TokenType.IF, TokenType.NIL, TokenType.OR, TokenType.PRINT, TokenType.RETURN, TokenType.SUPER,
+                TokenType.THIS, TokenType.TRUE, TokenType.VAR, TokenType.WHILE, TokenType.EOF
+        );
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void testKeywordPrefixesAndExtensionsAreIdentifiers() {
+        var scanner = lexer("an ands classy els f fo fors i iff ni nil_ o orchid whiles _var Var tru");
+        var actual = scanner.scanTokens();
+        for (var token : actual.subList(0, actual.size() - 1)) {
+            assertEquals(TokenType.IDENTIFIER, token.type, token.lexeme);
+        }
+    }
+
+    @Test
+    void testIdentifiersAndStringsAreInterned() {
+        var scanner = lexer("count = count + \"one\" + \"one\" + counter;");
+        var tokens = scanner.scanTokens();
+        assertSame(tokens.get(0).lexeme, tokens.get(2).lexeme);
+        assertSame(tokens.get(4).literal, tokens.get(6).literal);
+        assertNotSame(tokens.get(0).lexeme, tokens.get(8).lexeme);
+
+        var buffer = new Scanner("count = count + \"one\" + \"one\" + counter;").scanTokenBuffer();
+        assertEquals(buffer.symbol(0), buffer.symbol(2));
+        assertEquals(buffer.symbol(4), buffer.symbol(6));
+        assertNotEquals(buffer.symbol(0), buffer.symbol(8));
+        assertEquals("count", buffer.symbols().symbol(buffer.symbol(0)));
+        // A string's literal is its only symbol, so both modes assign the same ids
+        var tokenScanner = new Scanner("count = count + \"one\" + \"one\" + counter;");
+        tokenScanner.scanTokens();
+        assertEquals(3, tokenScanner.symbols().size());
+        assertEquals(tokenScanner.symbols().size(), buffer.symbols().size());
+
+        // Over a MappedSource symbols are hashed and compared as bytes, including non-ASCII ones
+        var text = "\"na\u00efve\" + \"na\u00efve\" + \"na\u00efve\"";
+        var mapped = new MappedSource(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+        var mappedScanner = new Scanner(mapped);
+        var mappedTokens = mappedScanner.scanTokens();
+        assertEquals("na\u00efve", mappedTokens.get(0).literal);
+        assertSame(mappedTokens.get(0).literal, mappedTokens.get(2).literal);
+        assertSame(mappedTokens.get(0).literal, mappedTokens.get(4).literal);
+        assertEquals(mappedTokens.get(0).lexeme, mappedTokens.get(4).lexeme);
+        assertEquals(1, mappedScanner.symbols().size());
+
+        var mappedBuffer = new Scanner(mapped).scanTokenBuffer();
+        assertEquals(mappedBuffer.symbol(0), mappedBuffer.symbol(2));
+        assertEquals(mappedBuffer.symbol(0), mappedBuffer.symbol(4));
+    }
+
+    @Test
+    void testManyDistinctStringsAreInterned() {
+        var source = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            source.append("\"s").append(i).append("\" ");
+        }
+        var tokens = lexer(source).scanTokens();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("s" + i, tokens.get(i).literal);
+        }
+
+        // intern() straight on the table, which has to grow its arrays well past their initial size
+        var symbols = new SymbolTable();
+        for (int i = 0; i < 1000; i++) {
+            var start = source.indexOf("\"s" + i + "\"") + 1;
+            assertEquals("s" + i, symbols.intern(source, start, source.indexOf("\"", start)));
+        }
+        assertEquals(1000, symbols.size());
+    }
+
     @Test
     void testBlockComment() {
-        var scanner = new Scanner("var foo = /* this is an i\nnline comment */ 123 + \"bar\";");
+        var scanner = lexer("var foo = /* this is an i\nnline comment */ 123 + \"bar\";");
         var actual = scanner.scanTokens();
         var expected = List.of(
-                new Token(TokenType.VAR, "var", "var", 1),
-                new Token(TokenType.IDENTIFIER, "foo", "foo", 1),
-                new Token(TokenType.EQUAL, "=", null, 1),
-                new Token(TokenType.NUMBER, "123", 123., 2),
-                new Token(TokenType.PLUS, "+", null, 2),
-                new Token(TokenType.STRING, "\"bar\"", "bar", 2),
-                new Token(TokenType.SEMICOLON, ";", null, 2),
-                new Token(TokenType.EOF, "", null, 2)
+                new Token(TokenType.VAR, "var", "var"),
+                new Token(TokenType.IDENTIFIER, "foo", "foo"),
+                new Token(TokenType.EQUAL, "=", null),
+                new Token(TokenType.NUMBER, "123", 123.),
+                new Token(TokenType.PLUS, "+", null),
+                new Token(TokenType.STRING, "\"bar\"", "bar"),
+                new Token(TokenType.SEMICOLON, ";", null),
+                new Token(TokenType.EOF, "", null)
         );
         assertTokensEqual(expected, actual);
     }
 
     @Test
     void testBlockCommentNested() {
-        var scanner = new Scanner("var foo = /* this is /* an i\nnline */ comment */ 123 + \"bar\";");
+        var scanner = lexer("var foo = /* this is /* an i\nnline */ comment */ 123 + \"bar\";");
         var actual = scanner.scanTokens();
         var expected = List.of(
-                new Token(TokenType.VAR, "var", "var", 1),
-                new Token(TokenType.IDENTIFIER, "foo", "foo", 1),
-                new Token(TokenType.EQUAL, "=", null, 1),
-                new Token(TokenType.NUMBER, "123", 123., 2),
-                new Token(TokenType.PLUS, "+", null, 2),
-                new Token(TokenType.STRING, "\"bar\"", "bar", 2),
-                new Token(TokenType.SEMICOLON, ";", null, 2),
-                new Token(TokenType.EOF, "", null, 2)
+                new Token(TokenType.VAR, "var", "var"),
+                new Token(TokenType.IDENTIFIER, "foo", "foo"),
+                new Token(TokenType.EQUAL, "=", null),
+                new Token(TokenType.NUMBER, "123", 123.),
+                new Token(TokenType.PLUS, "+", null),
+                new Token(TokenType.STRING, "\"bar\"", "bar"),
+                new Token(TokenType.SEMICOLON, ";", null),
+                new Token(TokenType.EOF, "", null)
+        );
+        assertTokensEqual(expected, actual);
+    }
+
+    @Test
+    void testBlockCommentAtEndOfSource() {
+        var scanner = lexer("{/**/}/* a /* b */ c */");
+        var actual = scanner.scanTokens();
+        var expected = List.of(
+                new Token(TokenType.LEFT_BRACE, "{", null),
+                new Token(TokenType.RIGHT_BRACE, "}", null),
+                new Token(TokenType.EOF, "", null)
         );
         assertTokensEqual(expected, actual);
     }
 
     @Test
     void testBlockCommentEOF() {
-        var scanner = new Scanner("var foo = /* this is /* an i\nnline */ comment 123 + \"bar\";");
+        var errors = new CollectingErrorReporter();
+        var scanner = lexer("var foo = /* this is /* an i\nnline */ comment 123 + \"bar\";", errors);
         var actual = scanner.scanTokens();
         var expected = List.of(
-                new Token(TokenType.VAR, "var", "var", 1),
-                new Token(TokenType.IDENTIFIER, "foo", "foo", 1),
-                new Token(TokenType.EQUAL, "=", null, 1),
-                new Token(TokenType.EOF, "", null, 2)
+                new Token(TokenType.VAR, "var", "var"),
+                new Token(TokenType.IDENTIFIER, "foo", "foo"),
+                new Token(TokenType.EQUAL, "=", null),
+                new Token(TokenType.EOF, "", null)
         );
-        assertTrue(Lox.hadError);
+        assertTrue(errors.hadError());
+        assertEquals(1, errors.errorCount());
+        assertEquals(Diagnostic.Kind.UNTERMINATED_BLOCK_COMMENT, errors.diagnostics().get(0).kind());
         assertTokensEqual(expected, actual);
     }
 
+    @Test
+    void testNextTokenStreamsSameTokensAsScanTokens() {
+        var source = "var foo = /* nested /* comment */ */ 12.5 + \"bar\";\n// trailing";
+        var expected = new Scanner(source).scanTokens();
+
+        var scanner = lexer(source);
+        var streamed = new ArrayList<Token>();
+        scanner.iterator().forEachRemaining(streamed::add);
+        assertTokensEqual(expected, streamed);
+
+        // Once exhausted the scanner keeps answering EOF
+        assertEquals(TokenType.EOF, scanner.nextToken().type);
+        assertEquals(TokenType.EOF, scanner.nextToken().type);
+    }
+
+    @Test
+    void testTokensStream() {
+        var source = "(1 + 2) * 3";
+        var expected = new Scanner(source).scanTokens();
+        var actual = lexer(source).tokens().toList();
+        assertTokensEqual(expected, actual);
+    }
+
+    @Test
+    void testMappedSource() throws IOException {
+        // Non-ASCII text is only legal inside string literals and comments
+        var source = "var cafe = \"na\u00efve \u2603\"; // \u00fcn\u00efcode comment\nprint 1.5 * (2 + 3);\n";
+        var file = Files.createTempFile("scanner-test", ".lox");
+        try {
+            Files.writeString(file, source, StandardCharsets.UTF_8);
+            var expected = new Scanner(source).scanTokens();
+            var actual = lexer(MappedSource.map(file)).scanTokens();
+            assertTokensEqual(expected, actual);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testTokenBufferMatchesScanTokens() {
+        var source = "var foo = /* this is /* an i\nnline */ comment */ 123 + \"b\nar\";\nprint foo * 12.5 <= .5;";
+        var expected = new Scanner(source).scanTokens();
+        var buffer = new Scanner(source).scanTokenBuffer();
+
+        assertEquals(expected.size(), buffer.size());
+        assertTokensEqual(expected, buffer.asList());
+        var lines = new LineMap(source);
+        for (int i = 0; i < buffer.size(); i++) {
+            assertEquals(lines.line(expected.get(i).offset), buffer.line(i));
+        }
+        assertEquals(123., buffer.number(3));
+        assertEquals(TokenType.NUMBER, buffer.type(3));
+    }
+
+    @Test
+    void testNumberLiteralsBitIdenticalToParseDouble() {
+        var corpus = new ArrayList<>(List.of(
+                "0", "00", "007", "0.0", "0.5", "1", "9", "10", "123", "12.3", "0.1", "0.2", "0.3",
+                "3.141592653589793", "2.718281828459045", "1.7976931348623157", "4.9", "1234567890.0987654321",
+                // Around the 2^53 boundary of the exact fast path
+                "9007199254740991", "9007199254740992", "9007199254740993", "9007199254740994",
+                "900719925474099.1", "900719925474099.3", "90071992547409.93",
+                // Around the 10^22 boundary
+                "1.0000000000000000000001", "1.0000000000000000000000", "0.0000000000000000000001",
+                "10000000000000000000000", "100000000000000000000000",
+                "123456789012345678901234567890", "0.000000000000000000000000000001",
+                "179769313486231570000000000000000000000000000000000000000000000000000000000000000000000000000000"
+                        + "000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000"
+                        + "000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000"
+                        + "000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000"
+        ));
+        var random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            var literal = new StringBuilder().append(random.nextInt(10));
+            var integerDigits = random.nextInt(20);
+            for (int d = 0; d < integerDigits; d++) {
+                literal.append(random.nextInt(10));
+            }
+            if (random.nextBoolean()) {
+                literal.append('.');
+                var fractionDigits = 1 + random.nextInt(25);
+                for (int d = 0; d < fractionDigits; d++) {
+                    literal.append(random.nextInt(10));
+                }
+            }
+            corpus.add(literal.toString());
+        }
+
+        for (var literal : corpus) {
+            var buffer = new Scanner(literal).scanTokenBuffer();
+            assertEquals(TokenType.NUMBER, buffer.type(0), literal);
+            assertEquals(
+                    Double.doubleToRawLongBits(Double.parseDouble(literal)),
+                    Double.doubleToRawLongBits(buffer.number(0)),
+                    literal);
+        }
+    }
+
+    @Test
+    void testBulkSkippingMatchesCharAtLoops() {
+        // Whitespace, comments and strings are skipped by String.indexOf() over a String, a long at a time
+        // over a MappedSource, and a char at a time over any other CharSequence. All must agree.
+        var pieces = List.of(" ", "  \t ", "\r\n", "\n", "\t\t\t\t\t\t\t\t\t", "// comment\n", "//", "\"str\"",
+                "\"two\nlines\"", "\"", "/* block */", "x", "12.5", "+", ";", "@");
+        var random = new Random(19);
+        for (int i = 0; i < 2_000; i++) {
+            var source = new StringBuilder();
+            var count = random.nextInt(40);
+            for (int p = 0; p < count; p++) {
+                source.append(pieces.get(random.nextInt(pieces.size())));
+            }
+
+            var text = source.toString();
+            var expected = scanWithDiagnostics(new StringBuilder(text));
+            assertEquals(expected, scanWithDiagnostics(text), text);
+            var mapped = new MappedSource(ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)));
+            assertEquals(expected, scanWithDiagnostics(mapped), text);
+        }
+    }
+
+    /**
+     * Every token with its offset, and every diagnostic, as text
+     */
+    List<String> scanWithDiagnostics(CharSequence source) {
+        var errors = new CollectingErrorReporter();
+        var result = new ArrayList<String>();
+        for (var token : lexer(source, errors).scanTokens()) {
+            result.add(token + " @" + token.offset);
+        }
+        for (var diagnostic : errors.diagnostics()) {
+            result.add(diagnostic + " @" + diagnostic.offset());
+        }
+        return result;
+    }
+
     private void assertTokensEqual(List<Token> expected, List<Token> actual) {
-        assertArrayEquals(expected.stream().map(Token::toString).toArray(), actual.stream().map(Token::toString).toArray());
+        assertEquals(expected, actual);
     }
 
 }
\ No newline at end of file
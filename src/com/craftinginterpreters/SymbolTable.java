@@ -0,0 +1,132 @@
+package com.craftinginterpreters;
+
+import java.util.Arrays;
+
+/**
+ * Interns identifier and string lexemes so that every occurrence of the same text shares one String.
+ *
+ * Lookups are keyed on a range of the source, so a hit never allocates: the hash is computed over the
+ * chars in place and candidates are compared char by char. Each distinct symbol also gets a dense int id
+ * in order of first appearance, which later stages can compare instead of Strings.
+ *
+ * Candidates are compared against the range of source each symbol was first seen at, not its String, so
+ * hashing and comparing are both in the source's own units. For a MappedSource those are bytes, which
+ * only match the decoded String for ASCII text.
+ */
+public class SymbolTable {
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Open addressing table of symbol ids, -1 for an empty slot. Always a power of two in size.
+    private int[] slots = newSlots(INITIAL_CAPACITY);
+    // Symbols, their hashes and where in which source each was first seen, indexed by id
+    private String[] symbols = new String[INITIAL_CAPACITY / 2];
+    private int[] hashes = new int[INITIAL_CAPACITY / 2];
+    private CharSequence[] sources = new CharSequence[INITIAL_CAPACITY / 2];
+    private int[] starts = new int[INITIAL_CAPACITY / 2];
+    private int[] lengths = new int[INITIAL_CAPACITY / 2];
+    private int size = 0;
+
+    /**
+     * The canonical String for source[start, end)
+     */
+    public String intern(CharSequence source, int start, int end) {
+        // id() may grow `symbols`, so it has to run before the array is read
+        var id = id(source, start, end);
+        return symbols[id];
+    }
+
+    /**
+     * The id for source[start, end), assigning the next one if the text hasn't been seen before
+     */
+    public int id(CharSequence source, int start, int end) {
+        var hash = hash(source, start, end);
+        var mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            var id = slots[slot];
+            if (id < 0) {
+                return insert(slot, hash, source, start, end);
+            }
+            if (hashes[id] == hash && matches(id, source, start, end)) {
+                return id;
+            }
+        }
+    }
+
+    public String symbol(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Symbol id " + id + " out of bounds for size " + size);
+        }
+        return symbols[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int insert(int slot, int hash, CharSequence source, int start, int end) {
+        if (size == symbols.length) {
+            symbols = Arrays.copyOf(symbols, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+            sources = Arrays.copyOf(sources, size * 2);
+            starts = Arrays.copyOf(starts, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+        }
+        var id = size++;
+        symbols[id] = source.subSequence(start, end).toString();
+        hashes[id] = hash;
+        sources[id] = source;
+        starts[id] = start;
+        lengths[id] = end - start;
+        slots[slot] = id;
+
+        // Keep the load factor at or below 1/2
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        slots = newSlots(slots.length * 2);
+        var mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            var slot = hashes[id] & mask;
+            while (slots[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id;
+        }
+    }
+
+    private static int[] newSlots(int capacity) {
+        var slots = new int[capacity];
+        Arrays.fill(slots, -1);
+        return slots;
+    }
+
+    /**
+     * Same as String.hashCode() of the range, then spread so the low bits used for the slot index vary
+     */
+    private static int hash(CharSequence source, int start, int end) {
+        var hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private boolean matches(int id, CharSequence source, int start, int end) {
+        var length = lengths[id];
+        if (length != end - start) {
+            return false;
+        }
+        var seen = sources[id];
+        var seenStart = starts[id];
+        for (int i = 0; i < length; i++) {
+            if (seen.charAt(seenStart + i) != source.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
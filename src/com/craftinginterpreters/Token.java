@@ -1,18 +1,40 @@
 package com.craftinginterpreters;
 
-// TODO: equals() and hashCode() so we don't need the hack assertTokenEquals in our tests!
+import java.util.Objects;
 
 public class Token {
     final TokenType type;
     final String lexeme;
     final Object literal;
-    final int line;
+    // Offset of the first character of the lexeme in the source, or -1 if unknown
+    final int offset;
 
-    public Token(TokenType type, String lexeme, Object literal, int line) {
+    public Token(TokenType type, String lexeme, Object literal) {
+        this(type, lexeme, literal, -1);
+    }
+
+    public Token(TokenType type, String lexeme, Object literal, int offset) {
         this.type = type;
         this.lexeme = lexeme;
         this.literal = literal;
-        this.line = line;
+        this.offset = offset;
+    }
+
+    /**
+     * Tokens are equal when they are the same lexeme of the same type with the same literal value.
+     * Where they appear in the source is not part of their identity.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Token)) return false;
+        var other = (Token) o;
+        return type == other.type && lexeme.equals(other.lexeme) && Objects.equals(literal, other.literal);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, lexeme, literal);
     }
 
     public String toString() {
@@ -0,0 +1,196 @@
+package com.craftinginterpreters;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A compact, struct-of-arrays alternative to a List<Token>.
+ *
+ * Each token costs a type byte plus two ints (start offset and length) and one int of payload, instead
+ * of a Token object with its own lexeme String and boxed literal. Number literals live in a double[] side
+ * table that the payload indexes into. Lines aren't stored at all, but looked up in a LineMap of the
+ * source. Lexemes, lines and Token objects are only worked out when something asks for them.
+ */
+public class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final CharSequence source;
+    private final LineMap lineMap;
+    // The table the IDENTIFIER, keyword and STRING payloads are symbol ids in
+    private SymbolTable symbols = new SymbolTable();
+
+    private int size = 0;
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    // Per token extra data: for NUMBER tokens the index of the value in `numbers`, for identifiers and
+    // keywords the symbol id of the lexeme, and for STRING tokens the symbol id of the literal
+    private int[] payloads = new int[INITIAL_CAPACITY];
+
+    private int numberCount = 0;
+    private double[] numbers = new double[INITIAL_CAPACITY / 4];
+
+    public TokenBuffer(CharSequence source) {
+        this.source = source;
+        this.lineMap = new LineMap(source);
+    }
+
+    void add(TokenType type, int start, int length) {
+        add(type, start, length, -1);
+    }
+
+    void addSymbol(TokenType type, int start, int length, int symbol) {
+        add(type, start, length, symbol);
+    }
+
+    void addNumber(int start, int length, double value) {
+        if (numberCount == numbers.length) {
+            numbers = Arrays.copyOf(numbers, Math.max(16, numberCount * 2));
+        }
+        numbers[numberCount] = value;
+        add(TokenType.NUMBER, start, length, numberCount++);
+    }
+
+    private void add(TokenType type, int start, int length, int payload) {
+        if (size == types.length) {
+            grow();
+        }
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        payloads[size] = payload;
+        size++;
+    }
+
+    private void grow() {
+        var capacity = size * 2;
+        types = Arrays.copyOf(types, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        payloads = Arrays.copyOf(payloads, capacity);
+    }
+
+    void clear(SymbolTable symbols) {
+        this.symbols = symbols;
+        size = 0;
+        numberCount = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TokenType type(int index) {
+        return TYPES[types[checkIndex(index)]];
+    }
+
+    public int start(int index) {
+        return starts[checkIndex(index)];
+    }
+
+    public int length(int index) {
+        return lengths[checkIndex(index)];
+    }
+
+    /**
+     * The line of the token's first char
+     */
+    public int line(int index) {
+        return lineMap.line(starts[checkIndex(index)]);
+    }
+
+    /**
+     * The column of the token's first char
+     */
+    public int column(int index) {
+        return lineMap.column(starts[checkIndex(index)]);
+    }
+
+    /**
+     * The value of a NUMBER token, without boxing it
+     */
+    public double number(int index) {
+        if (type(index) != TokenType.NUMBER) {
+            throw new IllegalArgumentException("Token " + index + " is a " + type(index) + ", not a NUMBER");
+        }
+        return numbers[payloads[index]];
+    }
+
+    /**
+     * The interned symbol id of an IDENTIFIER or keyword's lexeme, or of a STRING's literal value
+     */
+    public int symbol(int index) {
+        var type = type(index);
+        if (type != TokenType.IDENTIFIER && type != TokenType.STRING && !isKeyword(type)) {
+            throw new IllegalArgumentException("Token " + index + " is a " + type + ", which has no symbol");
+        }
+        return payloads[index];
+    }
+
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
+    public String lexeme(int index) {
+        var type = type(index);
+        if (type == TokenType.IDENTIFIER || isKeyword(type)) {
+            return symbols.symbol(payloads[index]);
+        }
+        var start = starts[index];
+        return source.subSequence(start, start + lengths[index]).toString();
+    }
+
+    /**
+     * The same literal value the Scanner would have attached to the Token
+     */
+    public Object literal(int index) {
+        var type = type(index);
+        switch (type) {
+            case NUMBER:
+                return numbers[payloads[index]];
+            case STRING:
+                return symbols.symbol(payloads[index]);
+            case IDENTIFIER:
+                return lexeme(index);
+            default:
+                return isKeyword(type) ? lexeme(index) : null;
+        }
+    }
+
+    public Token token(int index) {
+        return new Token(type(index), lexeme(index), literal(index), starts[index]);
+    }
+
+    /**
+     * A read-only List<Token> view for existing consumers. Each get() materializes a fresh Token.
+     */
+    public List<Token> asList() {
+        return new TokenList();
+    }
+
+    private static boolean isKeyword(TokenType type) {
+        return type.compareTo(TokenType.AND) >= 0 && type.compareTo(TokenType.WHILE) <= 0;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Token index " + index + " out of bounds for size " + size);
+        }
+        return index;
+    }
+
+    private class TokenList extends AbstractList<Token> implements RandomAccess {
+        @Override
+        public Token get(int index) {
+            return token(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.craftinginterpreters;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An on-disk cache of scanned token streams, so unchanged scripts aren't rescanned on every launch.
+ *
+ * Entries are keyed by the SHA-256 of the source bytes and named after it and the format version, so a
+ * changed source or a new format simply misses. An entry holds a compact binary encoding of the tokens:
+ *
+ *   header:    int magic, int format version, long source length, int token count
+ *   per token: byte type ordinal, int offset, int length, and a double value for NUMBERs
+ *
+ * Lexemes aren't stored, they're read back out of the source by offset and length. Neither are lines,
+ * which a LineMap over the source gives for an offset. Entries are memory mapped to load them. When the
+ * directory grows past its size limit the least recently used entries (by modification time, which a hit
+ * refreshes) are deleted.
+ *
+ * Sources with errors aren't cached, so their errors are reported again on the next run.
+ */
+public class TokenCache {
+    static final int MAGIC = 0x4C4F5854;  // "LOXT"
+    static final int FORMAT_VERSION = 2;
+
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4;
+    private static final int TOKEN_BYTES = 1 + 4 + 4;
+    private static final String SUFFIX = ".v" + FORMAT_VERSION + ".tokens";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Path directory;
+    private final long maxBytes;
+    private int hits = 0;
+    private int misses = 0;
+
+    public TokenCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The tokens of `source`, loaded from the cache if it has seen these exact bytes before
+     */
+    public List<Token> scanTokens(MappedSource source, ErrorReporter reporter) throws IOException {
+        var entry = directory.resolve(key(source.bytes()) + SUFFIX);
+
+        if (Files.exists(entry)) {
+            var tokens = read(entry, source);
+            if (tokens != null) {
+                hits++;
+                Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+                return tokens;
+            }
+        }
+
+        misses++;
+        var errors = new CollectingErrorReporter(Integer.MAX_VALUE);
+        var tokens = new Scanner(source, errors).scanTokens();
+        errors.forwardTo(reporter);
+        if (!errors.hadError()) {
+            write(entry, source, tokens);
+            evict();
+        }
+        return tokens;
+    }
+
+    public int hits() {
+        return hits;
+    }
+
+    public int misses() {
+        return misses;
+    }
+
+    private static String key(ByteBuffer bytes) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(bytes);
+            var hash = digest.digest();
+            var hex = new StringBuilder(hash.length * 2);
+            for (var b : hash) {
+                hex.append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void write(Path entry, MappedSource source, List<Token> tokens) throws IOException {
+        var size = HEADER_BYTES + (long) tokens.size() * TOKEN_BYTES;
+        for (var token : tokens) {
+            if (token.type == TokenType.NUMBER) {
+                size += 8;
+            }
+        }
+
+        var buffer = ByteBuffer.allocate(Math.toIntExact(size));
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(source.length()).putInt(tokens.size());
+        for (var token : tokens) {
+            var length = token.type == TokenType.EOF ? 0 : tokenLength(source, token);
+            buffer.put((byte) token.type.ordinal()).putInt(token.offset).putInt(length);
+            if (token.type == TokenType.NUMBER) {
+                buffer.putDouble((double) token.literal);
+            }
+        }
+        buffer.flip();
+
+        // Write to a temporary file and move it into place, so a reader never sees a partial entry
+        Files.createDirectories(directory);
+        var temporary = Files.createTempFile(directory, "entry", ".tmp");
+        try {
+            try (var channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            try {
+                Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * The tokens in an entry, or null if it doesn't hold a stream for this source in this format. A
+     * truncated or corrupt entry is null too, so it's rescanned and overwritten rather than crashing.
+     */
+    private static List<Token> read(Path entry, MappedSource source) throws IOException {
+        ByteBuffer buffer;
+        try (var channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.remaining() < HEADER_BYTES
+                || buffer.getInt() != MAGIC
+                || buffer.getInt() != FORMAT_VERSION
+                || buffer.getLong() != source.length()) {
+            return null;
+        }
+
+        var count = buffer.getInt();
+        if (count < 0 || buffer.remaining() < (long) count * TOKEN_BYTES) {
+            return null;
+        }
+        var symbols = new SymbolTable();
+        var tokens = new ArrayList<Token>(count);
+        for (int i = 0; i < count; i++) {
+            if (buffer.remaining() < TOKEN_BYTES) {
+                return null;
+            }
+            var ordinal = buffer.get();
+            var offset = buffer.getInt();
+            var length = buffer.getInt();
+            if (ordinal < 0 || ordinal >= TYPES.length
+                    || offset < 0 || length < 0 || (long) offset + length > source.length()) {
+                return null;
+            }
+            var type = TYPES[ordinal];
+            if ((type == TokenType.NUMBER && buffer.remaining() < Double.BYTES)
+                    || (type == TokenType.STRING && length < 2)) {
+                return null;
+            }
+            tokens.add(decode(type, source, symbols, offset, offset + length, buffer));
+        }
+        // Trailing bytes mean the count or the entry is wrong
+        return buffer.hasRemaining() ? null : tokens;
+    }
+
+    /**
+     * The token at source[offset, end), taking a NUMBER's value from `buffer`. TokenReader shares this.
+     */
+    static Token decode(TokenType type, CharSequence source, SymbolTable symbols,
+                        int offset, int end, ByteBuffer buffer) {
+        switch (type) {
+            case EOF:
+                return new Token(type, "", null, offset);
+            case NUMBER:
+                return new Token(type, source.subSequence(offset, end).toString(), buffer.getDouble(), offset);
+            case STRING:
+                // Only the literal is interned, as the scanners do
+                return new Token(type, source.subSequence(offset, end).toString(),
+                        symbols.intern(source, offset + 1, end - 1), offset);
+            case IDENTIFIER:
+                var identifier = symbols.intern(source, offset, end);
+                return new Token(type, identifier, identifier, offset);
+            default:
+                if (type.compareTo(TokenType.AND) >= 0 && type.compareTo(TokenType.WHILE) <= 0) {
+                    var keyword = symbols.intern(source, offset, end);
+                    return new Token(type, keyword, keyword, offset);
+                }
+                return new Token(type, source.subSequence(offset, end).toString(), null, offset);
+        }
+    }
+
+    /**
+     * Length of the token in source chars. The lexeme can be shorter when it contains UTF-8 sequences.
+     */
+    static int tokenLength(CharSequence source, Token token) {
+        if (token.type != TokenType.STRING) {
+            return token.lexeme.length();
+        }
+        // Only strings can hold non-ASCII text. Find the closing quote in the source.
+        var end = token.offset + 1;
+        while (source.charAt(end) != '"') {
+            end++;
+        }
+        return end + 1 - token.offset;
+    }
+
+    private void evict() throws IOException {
+        List<Path> entries;
+        try (var files = Files.list(directory)) {
+            entries = new ArrayList<>(files.filter(path -> path.toString().endsWith(".tokens")).toList());
+        }
+
+        var total = 0L;
+        for (var entry : entries) {
+            total += Files.size(entry);
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+
+        entries.sort(Comparator.comparing(TokenCache::lastModified));
+        for (var entry : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            total -= Files.size(entry);
+            Files.deleteIfExists(entry);
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.craftinginterpreters;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private static final String SOURCE = """
+            var greeting = "h\u00e9llo";
+            /* nested /* comment */ */
+            if (x >= 1.5) print greeting + 12345678901234567890;
+            """;
+
+    @Test
+    void testHitReturnsSameTokensAsScan() throws IOException {
+        var cache = new TokenCache(directory.resolve("cache"), 1 << 20);
+        var file = write("script.lox", SOURCE);
+
+        var scanned = cache.scanTokens(MappedSource.map(file), new CollectingErrorReporter());
+        var loaded = cache.scanTokens(MappedSource.map(file), new CollectingErrorReporter());
+
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.hits());
+        assertSameTokens(new Scanner(MappedSource.map(file), new CollectingErrorReporter()).scanTokens(), scanned);
+        assertSameTokens(scanned, loaded);
+    }
+
+    @Test
+    void testChangedSourceMisses() throws IOException {
+        var cache = new TokenCache(directory.resolve("cache"), 1 << 20);
+        var file = write("script.lox", SOURCE);
+        cache.scanTokens(MappedSource.map(file), new CollectingErrorReporter());
+
+        write("script.lox", SOURCE + "x;");
+        var tokens = cache.scanTokens(MappedSource.map(file), new CollectingErrorReporter());
+
+        assertEquals(2, cache.misses());
+        assertEquals(0, cache.hits());
+        assertEquals("x", tokens.get(tokens.size() - 3).lexeme);
+    }
+
+    @Test
+    void testSourcesWithErrorsAreNotCached() throws IOException {
+        var cache = new TokenCache(directory.resolve("cache"), 1 << 20);
+        var file = write("script.lox", "var s = \"unterminated");
+
+        for (int i = 0; i < 2; i++) {
+            var errors = new CollectingErrorReporter();
+            cache.scanTokens(MappedSource.map(file), errors);
+            assertEquals(1, errors.errorCount());
+        }
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedEntries() throws IOException {
+        var cacheDirectory = directory.resolve("cache");
+        // Each entry is a 20 byte header and five 13 byte tokens, so only one fits
+        var cache = new TokenCache(cacheDirectory, 128);
+        var a = write("a.lox", "a + b;");
+        var b = write("b.lox", "c + d;");
+        var c = write("c.lox", "e + f;");
+
+        cache.scanTokens(MappedSource.map(a), new CollectingErrorReporter());
+        age(cacheDirectory);
+        cache.scanTokens(MappedSource.map(b), new CollectingErrorReporter());
+        age(cacheDirectory);
+        cache.scanTokens(MappedSource.map(c), new CollectingErrorReporter());
+
+        try (var entries = Files.list(cacheDirectory)) {
+            assertEquals(1, entries.count());
+        }
+        cache.scanTokens(MappedSource.map(c), new CollectingErrorReporter());
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    void testCorruptEntriesMissAndAreOverwritten() throws IOException {
+        var cacheDirectory = directory.resolve("cache");
+        var cache = new TokenCache(cacheDirectory, 1 << 20);
+        var file = write("script.lox", SOURCE);
+        var expected = cache.scanTokens(MappedSource.map(file), new CollectingErrorReporter());
+        Path entry;
+        try (var entries = Files.list(cacheDirectory)) {
+            entry = entries.findFirst().orElseThrow();
+        }
+        var bytes = Files.readAllBytes(entry);
+        // The first token's type, then its offset
+        var firstToken = 4 + 4 + 8 + 4;
+
+        var truncated = Arrays.copyOf(bytes, bytes.length - 3);
+        var unknownType = bytes.clone();
+        unknownType[firstToken] = 0x7F;
+        var badOffset = bytes.clone();
+        ByteBuffer.wrap(badOffset).putInt(firstToken + 1, SOURCE.length() + 1);
+        var trailing = Arrays.copyOf(bytes, bytes.length + 1);
+        var wrongCount = bytes.clone();
+        ByteBuffer.wrap(wrongCount).putInt(firstToken - 4, Integer.MAX_VALUE);
+
+        var misses = cache.misses();
+        for (var corrupt : List.of(truncated, unknownType, badOffset, trailing, wrongCount)) {
+            Files.write(entry, corrupt);
+            assertSameTokens(expected, cache.scanTokens(MappedSource.map(file), new CollectingErrorReporter()));
+            assertEquals(++misses, cache.misses());
+            assertArrayEquals(bytes, Files.readAllBytes(entry));
+        }
+        assertEquals(0, cache.hits());
+    }
+
+    /**
+     * Make every existing entry look an hour older, so the next one is unambiguously the most recent
+     */
+    private static void age(Path cacheDirectory) throws IOException {
+        try (var entries = Files.list(cacheDirectory)) {
+            for (var entry : entries.toList()) {
+                var modified = Files.getLastModifiedTime(entry).toMillis();
+                Files.setLastModifiedTime(entry, FileTime.fromMillis(modified - 3_600_000));
+            }
+        }
+    }
+
+    private Path write(String name, String contents) throws IOException {
+        return Files.writeString(directory.resolve(name), contents);
+    }
+
+    private static void assertSameTokens(List<Token> expected, List<Token> actual) {
+        assertEquals(expected, actual);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).offset, actual.get(i).offset);
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+    }
+}
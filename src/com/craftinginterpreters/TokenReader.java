@@ -0,0 +1,121 @@
+package com.craftinginterpreters;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads back the tokens TokenWriter wrote, given the source they were scanned from. Lexemes are taken
+ * from the source, so the tokens are equal to the ones Scanner produced.
+ *
+ * A stream that doesn't fit the source, whether it's corrupt or was written for another one, is an
+ * IOException: record lengths and token positions are checked against the source before they're used.
+ */
+public final class TokenReader {
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final CharSequence source;
+    // No record can be longer than this: a STRING's payload is the UTF-8 of a literal from the source,
+    // at most three bytes for each of its chars
+    private final long maxRecordLength;
+    private final SymbolTable symbols = new SymbolTable();
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).flip();
+    private boolean readHeader = false;
+
+    public TokenReader(ReadableByteChannel channel, CharSequence source) {
+        this.channel = channel;
+        this.source = source;
+        this.maxRecordLength = TokenWriter.RECORD_BYTES + Math.max(Double.BYTES, 3L * source.length());
+    }
+
+    /**
+     * The next token, or null once the stream has ended
+     */
+    public Token next() throws IOException {
+        if (!readHeader) {
+            if (!fill(2 * Integer.BYTES) || buffer.getInt() != TokenWriter.MAGIC) {
+                throw new IOException("Not a Lox token stream");
+            }
+            var version = buffer.getInt();
+            if (version != TokenWriter.FORMAT_VERSION) {
+                throw new IOException("Unsupported token stream version " + version);
+            }
+            readHeader = true;
+        }
+
+        if (!fill(Integer.BYTES)) {
+            if (buffer.hasRemaining()) {
+                throw new EOFException("Token stream ends partway through a record length");
+            }
+            return null;
+        }
+        var recordLength = buffer.getInt();
+        if (recordLength < TokenWriter.RECORD_BYTES || recordLength > maxRecordLength) {
+            throw new IOException("Corrupt token record of " + recordLength + " bytes");
+        }
+        if (!fill(recordLength)) {
+            throw new EOFException("Token stream ends partway through a record");
+        }
+
+        var recordEnd = buffer.position() + recordLength;
+        var ordinal = buffer.get();
+        if (ordinal < 0 || ordinal >= TYPES.length) {
+            throw new IOException("Unknown token type " + ordinal);
+        }
+        var type = TYPES[ordinal];
+        var offset = buffer.getInt();
+        var length = buffer.getInt();
+        if (offset < 0 || length < 0 || (long) offset + length > source.length()) {
+            throw new IOException("Token at [" + offset + ", " + ((long) offset + length)
+                    + ") out of bounds for a source of length " + source.length());
+        }
+        if ((type == TokenType.NUMBER && recordLength < TokenWriter.RECORD_BYTES + Double.BYTES)
+                || (type == TokenType.STRING && length < 2)) {
+            throw new IOException("Corrupt " + type + " token record");
+        }
+        var token = TokenCache.decode(type, source, symbols, offset, offset + length, buffer);
+        // Skip what decode() didn't need, e.g. a STRING's literal, which the source has too
+        buffer.position(recordEnd);
+        return token;
+    }
+
+    /**
+     * Every remaining token in the stream
+     */
+    public List<Token> readAll() throws IOException {
+        var tokens = new ArrayList<Token>();
+        Token token;
+        while ((token = next()) != null) {
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    /**
+     * Read until at least `count` bytes are buffered, returning false if the stream ends first
+     */
+    private boolean fill(int count) throws IOException {
+        if (buffer.remaining() >= count) {
+            return true;
+        }
+        if (count > buffer.capacity()) {
+            var larger = ByteBuffer.allocateDirect(Math.max(count, buffer.capacity() * 2));
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < count) {
+            if (channel.read(buffer) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= count;
+    }
+}
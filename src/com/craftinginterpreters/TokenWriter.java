@@ -0,0 +1,92 @@
+package com.craftinginterpreters;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes tokens in the binary format of `--emit=tokens-bin`, which TokenReader reads back:
+ *
+ *   header:    int magic, int format version
+ *   per token: int record length, then byte type ordinal, int offset, int length, and a payload of the
+ *              double value for a NUMBER or the UTF-8 bytes of the literal for a STRING
+ *
+ * Numbers are big-endian. The record length counts the bytes after it, so a reader can skip payloads it
+ * doesn't understand. Offset and length locate the lexeme in the source (in bytes for a MappedSource),
+ * so lexemes are read back out of the source, while literal values can be used without it. Lines aren't
+ * written: a LineMap over the source gives the line of an offset.
+ *
+ * Records are put straight into a direct buffer, which is written to the channel whenever it fills or
+ * flush() is called, so no String is built per token.
+ */
+public final class TokenWriter implements Flushable {
+    static final int MAGIC = 0x4C4F5842;  // "LOXB"
+    static final int FORMAT_VERSION = 2;
+    // The fixed part of a record after its length
+    static final int RECORD_BYTES = 1 + 4 + 4;
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final CharSequence source;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+    /**
+     * Write tokens scanned from `source` to `channel`, which the caller still owns and closes
+     */
+    public TokenWriter(WritableByteChannel channel, CharSequence source) {
+        this.channel = channel;
+        this.source = source;
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION);
+    }
+
+    public void write(Token token) throws IOException {
+        var payload = 0;
+        byte[] literal = null;
+        if (token.type == TokenType.NUMBER) {
+            payload = Double.BYTES;
+        } else if (token.type == TokenType.STRING) {
+            literal = ((String) token.literal).getBytes(StandardCharsets.UTF_8);
+            payload = literal.length;
+        }
+
+        var length = token.type == TokenType.EOF ? 0 : TokenCache.tokenLength(source, token);
+        if (buffer.remaining() < Integer.BYTES + RECORD_BYTES + payload) {
+            flush();
+        }
+        buffer.putInt(RECORD_BYTES + payload)
+                .put((byte) token.type.ordinal())
+                .putInt(token.offset)
+                .putInt(length);
+
+        if (token.type == TokenType.NUMBER) {
+            buffer.putDouble((double) token.literal);
+        } else if (literal != null) {
+            if (literal.length <= buffer.remaining()) {
+                buffer.put(literal);
+            } else {
+                // Too big for the buffer, so it goes to the channel directly
+                flush();
+                write(ByteBuffer.wrap(literal));
+            }
+        }
+    }
+
+    /**
+     * Write out everything buffered so far
+     */
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        write(buffer);
+        buffer.clear();
+    }
+
+    private void write(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+}
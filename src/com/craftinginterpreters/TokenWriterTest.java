@@ -0,0 +1,124 @@
+package com.craftinginterpreters;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenWriterTest {
+
+    @Test
+    void testRoundTripsScannedTokens() throws IOException {
+        // The last string is larger than the writer's buffer
+        var source = "var foo = /* c */ 12.50 + \"b\nar\";\nprint foo * .5 <= nil; // end\n"
+                + "\"" + "x".repeat(100_000) + "\"";
+        assertRoundTrips(source);
+    }
+
+    @Test
+    void testRoundTripsMappedSource() throws IOException {
+        var text = "print \"gr\u00fc\u00dfe, \u4e16\u754c\" + cafe;\nvar n = 3.25;";
+        assertRoundTrips(new MappedSource(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void testRecordLayout() throws IOException {
+        var bytes = ByteBuffer.wrap(write("1.5 \"\u00e9\"", new Scanner("1.5 \"\u00e9\"").scanTokens()));
+
+        assertEquals(TokenWriter.MAGIC, bytes.getInt());
+        assertEquals(TokenWriter.FORMAT_VERSION, bytes.getInt());
+
+        assertEquals(TokenWriter.RECORD_BYTES + Double.BYTES, bytes.getInt());
+        assertEquals(TokenType.NUMBER.ordinal(), bytes.get());
+        assertEquals(0, bytes.getInt());
+        assertEquals(3, bytes.getInt());
+        assertEquals(1.5, bytes.getDouble());
+
+        // A STRING's literal is its UTF-8 bytes
+        assertEquals(TokenWriter.RECORD_BYTES + 2, bytes.getInt());
+        assertEquals(TokenType.STRING.ordinal(), bytes.get());
+        assertEquals(4, bytes.getInt());
+        assertEquals(3, bytes.getInt());
+        assertEquals((byte) 0xC3, bytes.get());
+        assertEquals((byte) 0xA9, bytes.get());
+
+        assertEquals(TokenWriter.RECORD_BYTES, bytes.getInt());
+        assertEquals(TokenType.EOF.ordinal(), bytes.get());
+        bytes.position(bytes.position() + 2 * Integer.BYTES);
+        assertFalse(bytes.hasRemaining());
+    }
+
+    @Test
+    void testRejectsOtherStreams() throws IOException {
+        var source = "1 + 2";
+        var bytes = write(source, new Scanner(source).scanTokens());
+
+        var garbage = Arrays.copyOf(bytes, bytes.length);
+        garbage[0] = 'X';
+        assertThrows(IOException.class, () -> reader(garbage, source).readAll());
+
+        var truncated = Arrays.copyOf(bytes, bytes.length - 1);
+        assertThrows(EOFException.class, () -> reader(truncated, source).readAll());
+    }
+
+    @Test
+    void testRejectsRecordsThatDontFitTheSource() throws IOException {
+        var source = "1 + \"s\"";
+        var bytes = write(source, new Scanner(source).scanTokens());
+        // The first record's length, then its type, offset and length
+        var header = 2 * Integer.BYTES;
+
+        // Too long to be a record for this source, so it's rejected before anything is read or allocated
+        var huge = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length)).putInt(header, Integer.MAX_VALUE - 8);
+        assertThrowsExactly(IOException.class, () -> reader(huge.array(), source).readAll());
+
+        // A NUMBER record too short to hold its value
+        var truncatedNumber = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length)).putInt(header, TokenWriter.RECORD_BYTES);
+        assertThrowsExactly(IOException.class, () -> reader(truncatedNumber.array(), source).readAll());
+
+        var pastEnd = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length)).putInt(header + 5, source.length());
+        assertThrows(IOException.class, () -> reader(pastEnd.array(), source).readAll());
+
+        var negative = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length)).putInt(header + 5, -1);
+        assertThrows(IOException.class, () -> reader(negative.array(), source).readAll());
+
+        var overflowing = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length)).putInt(header + 9, Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> reader(overflowing.array(), source).readAll());
+
+        // The same stream is fine against a source it fits
+        assertEquals(new Scanner(source).scanTokens(), reader(bytes, source).readAll());
+    }
+
+    private static void assertRoundTrips(CharSequence source) throws IOException {
+        var expected = new Scanner(source).scanTokens();
+        var actual = reader(write(source, expected), source).readAll();
+
+        assertEquals(expected, actual);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).offset, actual.get(i).offset);
+        }
+    }
+
+    private static byte[] write(CharSequence source, List<Token> tokens) throws IOException {
+        var out = new ByteArrayOutputStream();
+        var writer = new TokenWriter(Channels.newChannel(out), source);
+        for (var token : tokens) {
+            writer.write(token);
+        }
+        writer.flush();
+        return out.toByteArray();
+    }
+
+    private static TokenReader reader(byte[] bytes, CharSequence source) {
+        return new TokenReader(Channels.newChannel(new ByteArrayInputStream(bytes)), source);
+    }
+}
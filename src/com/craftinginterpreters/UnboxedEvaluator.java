@@ -0,0 +1,198 @@
+package com.craftinginterpreters;
+
+/**
+ * Evaluates expressions without boxing intermediate results, when the caller knows what kind of result
+ * it wants.
+ *
+ * evaluateNumber() passes raw doubles up the tree through Expr.DoubleVisitor, and evaluateCondition()
+ * passes raw booleans (the truthiness of each value) through Expr.BooleanVisitor. When a subexpression
+ * turns out not to be a number, e.g. a string concatenation, that node is handed to the boxed Evaluator
+ * instead, so the results and the RuntimeErrors thrown are always the same as the Evaluator's.
+ *
+ * The unboxed visitors recurse once per node. Below MAX_DEPTH nested nodes a subtree is handed to the
+ * boxed Evaluator, which doesn't recurse, so deeper trees are still evaluated, just boxed.
+ */
+class UnboxedEvaluator {
+    // How deep the unboxed visitors recurse before handing the rest of a subtree to the boxed Evaluator
+    static final int MAX_DEPTH = 256;
+
+    private final Evaluator boxed = new Evaluator();
+    private final Numbers numbers = new Numbers();
+    private final Conditions conditions = new Conditions();
+    // How many unboxed visits are currently on the stack
+    private int depth = 0;
+
+    /**
+     * The value of an expression that should evaluate to a number
+     */
+    double evaluateNumber(Expr expr) {
+        try {
+            return number(expr);
+        } catch (NotANumber e) {
+            throw new RuntimeError(null, "Expression is not a number.");
+        }
+    }
+
+    /**
+     * Whether the value of the expression is truthy, i.e. neither false nor nil
+     */
+    boolean evaluateCondition(Expr expr) {
+        return condition(expr);
+    }
+
+    /**
+     * Thrown up to the parent when a subexpression evaluated fine, but not to a number. The parent then
+     * evaluates itself boxed instead. Preallocated and without a stack trace, since it's only a signal.
+     */
+    private static final class NotANumber extends RuntimeException {
+        static final NotANumber INSTANCE = new NotANumber();
+
+        private static final long serialVersionUID = 1L;
+
+        private NotANumber() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Visit `expr` with the Numbers visitor, or evaluate it boxed once MAX_DEPTH visits are on the stack
+     */
+    private double number(Expr expr) {
+        if (depth == MAX_DEPTH) {
+            return asNumber(boxed.evaluate(expr));
+        }
+        depth++;
+        try {
+            return expr.acceptDouble(numbers);
+        } finally {
+            depth--;
+        }
+    }
+
+    /**
+     * Visit `expr` with the Conditions visitor, or evaluate it boxed once MAX_DEPTH visits are on the stack
+     */
+    private boolean condition(Expr expr) {
+        if (depth == MAX_DEPTH) {
+            return Evaluator.isTruthy(boxed.evaluate(expr));
+        }
+        depth++;
+        try {
+            return expr.acceptBoolean(conditions);
+        } finally {
+            depth--;
+        }
+    }
+
+    private double asNumber(Object value) {
+        if (value instanceof Double) {
+            return (double) value;
+        }
+        throw NotANumber.INSTANCE;
+    }
+
+    private class Numbers implements Expr.DoubleVisitor {
+        @Override
+        public double visitBinaryExpr(Expr.Binary expr) {
+            try {
+                switch (expr.operator.type) {
+                    case MINUS:
+                        return number(expr.left) - number(expr.right);
+                    case PLUS:
+                        return number(expr.left) + number(expr.right);
+                    case SLASH:
+                        return number(expr.left) / number(expr.right);
+                    case STAR:
+                        return number(expr.left) * number(expr.right);
+                    default:
+                        // Comparisons and equality evaluate to a Boolean
+                        break;
+                }
+            } catch (NotANumber e) {
+                // Fall through to evaluate this node boxed
+            }
+            return asNumber(boxed.evaluate(expr));
+        }
+
+        @Override
+        public double visitGroupingExpr(Expr.Grouping expr) {
+            return number(expr.expression);
+        }
+
+        @Override
+        public double visitLiteralExpr(Expr.Literal expr) {
+            return asNumber(expr.value);
+        }
+
+        @Override
+        public double visitUnaryExpr(Expr.Unary expr) {
+            if (expr.operator.type == TokenType.MINUS) {
+                try {
+                    return -number(expr.right);
+                } catch (NotANumber e) {
+                    // Fall through to evaluate this node boxed
+                }
+            }
+            return asNumber(boxed.evaluate(expr));
+        }
+    }
+
+    private class Conditions implements Expr.BooleanVisitor {
+        @Override
+        public boolean visitBinaryExpr(Expr.Binary expr) {
+            try {
+                switch (expr.operator.type) {
+                    case GREATER:
+                        return number(expr.left) > number(expr.right);
+                    case GREATER_EQUAL:
+                        return number(expr.left) >= number(expr.right);
+                    case LESS:
+                        return number(expr.left) < number(expr.right);
+                    case LESS_EQUAL:
+                        return number(expr.left) <= number(expr.right);
+                    case EQUAL_EQUAL:
+                        return sameNumber(number(expr.left), number(expr.right));
+                    case BANG_EQUAL:
+                        return !sameNumber(number(expr.left), number(expr.right));
+                    default:
+                        // Arithmetic: any number is truthy, but it still has to be evaluated for its errors
+                        number(expr);
+                        return true;
+                }
+            } catch (NotANumber e) {
+                return Evaluator.isTruthy(boxed.evaluate(expr));
+            }
+        }
+
+        @Override
+        public boolean visitGroupingExpr(Expr.Grouping expr) {
+            return condition(expr.expression);
+        }
+
+        @Override
+        public boolean visitLiteralExpr(Expr.Literal expr) {
+            return Evaluator.isTruthy(expr.value);
+        }
+
+        @Override
+        public boolean visitUnaryExpr(Expr.Unary expr) {
+            if (expr.operator.type == TokenType.BANG) {
+                return !condition(expr.right);
+            }
+            try {
+                number(expr);
+                return true;
+            } catch (NotANumber e) {
+                return Evaluator.isTruthy(boxed.evaluate(expr));
+            }
+        }
+
+        /**
+         * Equality as Double.equals() defines it, which is what the boxed Evaluator uses: NaN equals
+         * itself, and 0.0 and -0.0 differ
+         */
+        private boolean sameNumber(double a, double b) {
+            return Double.doubleToLongBits(a) == Double.doubleToLongBits(b);
+        }
+    }
+}
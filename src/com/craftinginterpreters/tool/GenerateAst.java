@@ -2,22 +2,29 @@ package com.craftinginterpreters.tool;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 public class GenerateAst {
+    // Visitor variants returning a primitive, so results can be passed around without boxing them
+    private static final List<String> PRIMITIVE_VISITORS = Arrays.asList("double", "boolean");
+
     public static void main(String[] args) throws IOException {
         if (args.length != 1) {
             System.err.println("Usage: generate_ast <output_directory>");
             System.exit(64);
         }
         String outputDir = args[0];
-        defineAst(outputDir, "Expr", Arrays.asList(
+        List<String> exprTypes = Arrays.asList(
                 "Binary   : Expr left, Token operator, Expr right",
                 "Grouping : Expr expression",
                 "Literal  : Object value",
                 "Unary    : Token operator, Expr right"
-        ));
+        );
+        defineAst(outputDir, "Expr", exprTypes);
+        defineArena(outputDir, "Expr", exprTypes);
+        defineInterner(outputDir, "Expr", exprTypes);
     }
 
     private static void defineAst(String outputDir, String baseName, List<String> types) throws IOException {
@@ -25,22 +32,153 @@ public class GenerateAst {
         PrintWriter writer = new PrintWriter(path, "UTF-8");
         writer.println("package com.craftinginterpreters;");
         writer.println("");
+        writer.println("import java.util.ArrayList;");
+        writer.println("import java.util.List;");
+        writer.println("import java.util.Objects;");
+        writer.println("");
         writer.println("abstract class " + baseName + " {");
 
-        // TODO: Implement
+        defineVisitor(writer, baseName, types, "Visitor<R>", "R");
+        for (String primitive : PRIMITIVE_VISITORS) {
+            defineVisitor(writer, baseName, types, visitorName(primitive), primitive);
+        }
+
         for (String type: types) {
             String className = type.split(":")[0].trim();
             String fields = type.split(":")[1].trim();
             defineType(writer, baseName, className, fields);
         }
 
+        // The base accept() methods
+        writer.println();
+        writer.println(indent(1) + "abstract <R> R accept(Visitor<R> visitor);");
+        for (String primitive : PRIMITIVE_VISITORS) {
+            writer.println(indent(1) + "abstract " + primitive + " " + acceptName(primitive) + "(" + visitorName(primitive) + " visitor);");
+        }
+        defineEquals(writer, baseName);
+
         writer.println("}");
         writer.close();
     }
 
+    /**
+     * equals() for the base class. It compares pairs of nodes off an explicit stack, each type's
+     * equalFields() comparing one node and pushing its children, so deep trees can't overflow the stack.
+     */
+    private static void defineEquals(PrintWriter writer, String baseName) {
+        int indentLevel = 1;
+        writer.println();
+        writer.println(indent(indentLevel) + "/**");
+        writer.println(indent(indentLevel) + " * Structural equality, compared without recursion so that trees of any depth can be compared");
+        writer.println(indent(indentLevel) + " */");
+        writer.println(indent(indentLevel) + "@Override");
+        writer.println(indent(indentLevel++) + "public boolean equals(Object o) {");
+        writer.println(indent(indentLevel) + "if (this == o) return true;");
+        writer.println(indent(indentLevel) + "if (!(o instanceof " + baseName + ")) return false;");
+        writer.println(indent(indentLevel) + "// Pairs of nodes still to compare, the pair to compare next on top");
+        writer.println(indent(indentLevel) + "List<" + baseName + "> pending = new ArrayList<>();");
+        writer.println(indent(indentLevel) + "pending.add(this);");
+        writer.println(indent(indentLevel) + "pending.add((" + baseName + ") o);");
+        writer.println(indent(indentLevel++) + "while (!pending.isEmpty()) {");
+        writer.println(indent(indentLevel) + "var b = pending.remove(pending.size() - 1);");
+        writer.println(indent(indentLevel) + "var a = pending.remove(pending.size() - 1);");
+        writer.println(indent(indentLevel) + "if (a == b) continue;");
+        writer.println(indent(indentLevel) + "if (a == null || b == null) return false;");
+        writer.println(indent(indentLevel) + "// Only compare hashes already computed, rather than hash both trees just to compare them");
+        writer.println(indent(indentLevel) + "if (a.isHashed() && b.isHashed() && a.hash != b.hash) return false;");
+        writer.println(indent(indentLevel) + "if (!a.equalFields(b, pending)) return false;");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println(indent(indentLevel) + "return true;");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println();
+        writer.println(indent(indentLevel) + "/**");
+        writer.println(indent(indentLevel) + " * Whether `o` is the same type of node with equal fields, other than its children. Each pair of");
+        writer.println(indent(indentLevel) + " * children still to compare is added to `pending`.");
+        writer.println(indent(indentLevel) + " */");
+        writer.println(indent(indentLevel) + "abstract boolean equalFields(" + baseName + " o, List<" + baseName + "> pending);");
+        defineHashCode(writer, baseName);
+    }
+
+    /**
+     * hashCode() for the base class. A node's hash is only computed the first time it's asked for, so
+     * building trees costs nothing for it. Unhashed descendants are hashed first off an explicit stack,
+     * children before parents, so each node hashes its own fields with its children's hashes already cached.
+     */
+    private static void defineHashCode(PrintWriter writer, String baseName) {
+        int indentLevel = 1;
+        writer.println();
+        writer.println(indent(indentLevel) + "/**");
+        writer.println(indent(indentLevel) + " * Structural hash, computed on first use and without recursion so that trees of any depth can be hashed");
+        writer.println(indent(indentLevel) + " */");
+        writer.println(indent(indentLevel) + "@Override");
+        writer.println(indent(indentLevel++) + "public int hashCode() {");
+        writer.println(indent(indentLevel++) + "if (!isHashed()) {");
+        writer.println(indent(indentLevel) + "// Nodes still to hash, each on top of its parent");
+        writer.println(indent(indentLevel) + "List<" + baseName + "> pending = new ArrayList<>();");
+        writer.println(indent(indentLevel) + "pending.add(this);");
+        writer.println(indent(indentLevel++) + "while (!pending.isEmpty()) {");
+        writer.println(indent(indentLevel) + "var node = pending.get(pending.size() - 1);");
+        writer.println(indent(indentLevel++) + "if (node.isHashed()) {");
+        writer.println(indent(indentLevel) + "pending.remove(pending.size() - 1);");
+        writer.println(indent(indentLevel) + "continue;");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println(indent(indentLevel) + "if (node.pushUnhashedChildren(pending)) continue;");
+        writer.println(indent(indentLevel) + "var hash = node.hashFields();");
+        writer.println(indent(indentLevel++) + "if (hash == 0) {");
+        writer.println(indent(indentLevel) + "node.hashIsZero = true;");
+        writer.println(indent(--indentLevel) + "} else {");
+        writer.println(indent(++indentLevel) + "node.hash = hash;");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println(indent(indentLevel) + "pending.remove(pending.size() - 1);");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println(indent(indentLevel) + "return hash;");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println();
+        writer.println(indent(indentLevel) + "/**");
+        writer.println(indent(indentLevel) + " * Whether hashCode() has already been computed. As in String, a hash of 0 is flagged separately, so");
+        writer.println(indent(indentLevel) + " * a racing thread at worst recomputes it.");
+        writer.println(indent(indentLevel) + " */");
+        writer.println(indent(indentLevel++) + "boolean isHashed() {");
+        writer.println(indent(indentLevel) + "return hash != 0 || hashIsZero;");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println();
+        writer.println(indent(indentLevel) + "/**");
+        writer.println(indent(indentLevel) + " * The hash of this node's fields, only called once its children are hashed");
+        writer.println(indent(indentLevel) + " */");
+        writer.println(indent(indentLevel) + "abstract int hashFields();");
+        writer.println();
+        writer.println(indent(indentLevel) + "/**");
+        writer.println(indent(indentLevel) + " * Add each child that hasn't been hashed yet to `pending`, returning whether there were any");
+        writer.println(indent(indentLevel) + " */");
+        writer.println(indent(indentLevel) + "abstract boolean pushUnhashedChildren(List<" + baseName + "> pending);");
+        writer.println();
+        writer.println(indent(indentLevel) + "private int hash;");
+        writer.println(indent(indentLevel) + "private boolean hashIsZero;");
+    }
+
+    private static void defineVisitor(PrintWriter writer, String baseName, List<String> types, String interfaceName, String returnType) {
+        int indentLevel = 1;
+        writer.println(indent(indentLevel++) + "interface " + interfaceName + " {");
+        for (String type : types) {
+            String typeName = type.split(":")[0].trim();
+            writer.println(indent(indentLevel) + returnType + " visit" + typeName + baseName + "(" + typeName + " " + baseName.toLowerCase() + ");");
+        }
+        writer.println(indent(--indentLevel) + "}");
+        writer.println();
+    }
+
+    private static String visitorName(String primitive) {
+        return upperFirst(primitive) + "Visitor";
+    }
+
+    private static String acceptName(String primitive) {
+        return "accept" + upperFirst(primitive);
+    }
+
     private static void defineType(PrintWriter writer, String baseName, String className, String fieldList) {
         int indentLevel = 1;
-        writer.println(indent(indentLevel++) + "class " + className + " extends " + baseName + " {");
+        writer.println(indent(indentLevel++) + "static class " + className + " extends " + baseName + " {");
 
         // Constructor
         writer.println(indent(indentLevel++) + className + "(" + fieldList + ") {");
@@ -52,6 +190,69 @@ public class GenerateAst {
         }
         writer.println(indent(--indentLevel) + "}");
 
+        // Visitor pattern
+        writer.println();
+        writer.println(indent(indentLevel) + "@Override");
+        writer.println(indent(indentLevel++) + "<R> R accept(Visitor<R> visitor) {");
+        writer.println(indent(indentLevel) + "return visitor.visit" + className + baseName + "(this);");
+        writer.println(indent(--indentLevel) + "}");
+        for (String primitive : PRIMITIVE_VISITORS) {
+            writer.println();
+            writer.println(indent(indentLevel) + "@Override");
+            writer.println(indent(indentLevel++) + primitive + " " + acceptName(primitive) + "(" + visitorName(primitive) + " visitor) {");
+            writer.println(indent(indentLevel) + "return visitor.visit" + className + baseName + "(this);");
+            writer.println(indent(--indentLevel) + "}");
+        }
+
+        // Structural equality, one node at a time. The children are compared by the base class's equals().
+        writer.println();
+        writer.println(indent(indentLevel) + "@Override");
+        writer.println(indent(indentLevel++) + "boolean equalFields(" + baseName + " o, List<" + baseName + "> pending) {");
+        writer.println(indent(indentLevel) + "if (!(o instanceof " + className + ")) return false;");
+        writer.println(indent(indentLevel) + "var other = (" + className + ") o;");
+        List<String> children = new ArrayList<>();
+        for (String field : fields) {
+            String name = field.split(" ")[1];
+            if (field.split(" ")[0].equals(baseName)) {
+                children.add(name);
+            } else {
+                writer.println(indent(indentLevel) + "if (!Objects.equals(" + name + ", other." + name + ")) return false;");
+            }
+        }
+        for (String child : children) {
+            writer.println(indent(indentLevel) + "pending.add(" + child + ");");
+            writer.println(indent(indentLevel) + "pending.add(other." + child + ");");
+        }
+        writer.println(indent(indentLevel) + "return true;");
+        writer.println(indent(--indentLevel) + "}");
+
+        // Hashing, one node at a time once its children have been hashed by the base class's hashCode()
+        List<String> names = new ArrayList<>();
+        for (String field : fields) {
+            names.add(field.split(" ")[1]);
+        }
+        writer.println();
+        writer.println(indent(indentLevel) + "@Override");
+        writer.println(indent(indentLevel++) + "int hashFields() {");
+        writer.println(indent(indentLevel) + "return Objects.hash(" + String.join(", ", names) + ");");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println();
+        writer.println(indent(indentLevel) + "@Override");
+        writer.println(indent(indentLevel++) + "boolean pushUnhashedChildren(List<" + baseName + "> pending) {");
+        if (children.isEmpty()) {
+            writer.println(indent(indentLevel) + "return false;");
+        } else {
+            writer.println(indent(indentLevel) + "var pushed = false;");
+            for (String child : children) {
+                writer.println(indent(indentLevel++) + "if (" + child + " != null && !" + child + ".isHashed()) {");
+                writer.println(indent(indentLevel) + "pending.add(" + child + ");");
+                writer.println(indent(indentLevel) + "pushed = true;");
+                writer.println(indent(--indentLevel) + "}");
+            }
+            writer.println(indent(indentLevel) + "return pushed;");
+        }
+        writer.println(indent(--indentLevel) + "}");
+
         // Fields
         writer.println();
         for (String field : fields) {
@@ -61,6 +262,516 @@ public class GenerateAst {
         writer.println(indent(--indentLevel) + "}");
     }
 
+    /**
+     * Emit <baseName>Interner: a hash-consing factory that hands out one shared instance for every
+     * structurally equal tree. The table only holds its nodes weakly, so it never keeps a tree alive.
+     */
+    private static void defineInterner(String outputDir, String baseName, List<String> types) throws IOException {
+        String internerName = baseName + "Interner";
+        String path = outputDir + "/" + internerName + ".java";
+        PrintWriter writer = new PrintWriter(path, "UTF-8");
+
+        writer.println("package com.craftinginterpreters;");
+        writer.println();
+        writer.println("import java.lang.ref.WeakReference;");
+        writer.println("import java.util.ArrayDeque;");
+        writer.println("import java.util.ArrayList;");
+        writer.println("import java.util.BitSet;");
+        writer.println("import java.util.Map;");
+        writer.println("import java.util.WeakHashMap;");
+        writer.println();
+        writer.println("/**");
+        writer.println(" * Hash-consing factory for " + baseName + " nodes, generated by tool/GenerateAst.");
+        writer.println(" *");
+        writer.println(" * Every factory method returns the one canonical node for its structure, so repeated subtrees are");
+        writer.println(" * shared instead of copied. Tokens compare by type and lexeme, so a shared node keeps the position");
+        writer.println(" * of the first occurrence that was interned. Nodes are only weakly referenced and disappear from");
+        writer.println(" * the table once nothing else uses them. Not thread-safe: use one interner per compilation.");
+        writer.println(" */");
+        writer.println("final class " + internerName + " {");
+
+        int indentLevel = 1;
+        writer.println(indent(indentLevel) + "private final Map<" + baseName + ", WeakReference<" + baseName + ">> table = new WeakHashMap<>();");
+
+        for (String type : types) {
+            String className = type.split(":")[0].trim();
+            String fieldList = type.split(":")[1].trim();
+            List<String> names = new ArrayList<>();
+            for (String field : fieldList.split(", ")) {
+                names.add(field.split(" ")[1]);
+            }
+            writer.println();
+            writer.println(indent(indentLevel++) + baseName + " " + lowerFirst(className) + "(" + fieldList + ") {");
+            writer.println(indent(indentLevel) + "return intern(new " + baseName + "." + className + "(" + String.join(", ", names) + "));");
+            writer.println(indent(--indentLevel) + "}");
+        }
+
+        // Interning a whole tree, children first so that parents are built from canonical children. The
+        // same post-order walk as the arena's from<baseName>(), so deep trees don't overflow the stack.
+        writer.println();
+        writer.println(indent(indentLevel) + "/**");
+        writer.println(indent(indentLevel) + " * The canonical copy of a whole tree, interned without recursion so that trees of any depth can be interned");
+        writer.println(indent(indentLevel) + " */");
+        writer.println(indent(indentLevel++) + baseName + " internTree(" + baseName + " expr) {");
+        writer.println(indent(indentLevel) + "var pending = new ArrayDeque<" + baseName + ">();");
+        writer.println(indent(indentLevel) + "// Whether the node at each depth of `pending` has had its children pushed yet");
+        writer.println(indent(indentLevel) + "var expanded = new BitSet();");
+        writer.println(indent(indentLevel) + "// Canonical nodes whose parents haven't been interned yet, last child on top");
+        writer.println(indent(indentLevel) + "var interned = new ArrayList<" + baseName + ">();");
+        writer.println();
+        writer.println(indent(indentLevel) + "pending.push(expr);");
+        writer.println(indent(indentLevel++) + "while (!pending.isEmpty()) {");
+        writer.println(indent(indentLevel) + "var depth = pending.size() - 1;");
+        writer.println(indent(indentLevel) + "var node = pending.peek();");
+        writer.println(indent(indentLevel++) + "if (!expanded.get(depth)) {");
+        writer.println(indent(indentLevel) + "expanded.set(depth);");
+        defineExpandChildren(writer, baseName, types, indentLevel);
+        writer.println(indent(indentLevel) + "expanded.clear(depth + 1, pending.size());");
+        writer.println(indent(indentLevel) + "continue;");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println();
+        writer.println(indent(indentLevel) + "pending.pop();");
+        writer.println(indent(indentLevel) + baseName + " canonical;");
+        String keyword = "if";
+        for (String type : types) {
+            String className = type.split(":")[0].trim();
+            String[] fields = type.split(":")[1].trim().split(", ");
+            String variable = lowerFirst(className);
+            writer.println(indent(indentLevel++) + (keyword.equals("if") ? "" : "} ") + keyword + " (node instanceof " + baseName + "." + className + ") {");
+            writer.println(indent(indentLevel) + "var " + variable + " = (" + baseName + "." + className + ") node;");
+            List<String> arguments = new ArrayList<>();
+            for (String field : fields) {
+                String fieldType = field.split(" ")[0];
+                String name = field.split(" ")[1];
+                arguments.add(fieldType.equals(baseName) ? name : variable + "." + name);
+            }
+            for (int i = fields.length - 1; i >= 0; i--) {
+                if (fields[i].split(" ")[0].equals(baseName)) {
+                    writer.println(indent(indentLevel) + "var " + fields[i].split(" ")[1] + " = interned.remove(interned.size() - 1);");
+                }
+            }
+            writer.println(indent(indentLevel) + "canonical = " + variable + "(" + String.join(", ", arguments) + ");");
+            indentLevel--;
+            keyword = "else if";
+        }
+        writer.println(indent(indentLevel++) + "} else {");
+        writer.println(indent(indentLevel) + "throw new IllegalArgumentException(\"Unknown " + baseName + " type \" + node.getClass().getName());");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println(indent(indentLevel) + "interned.add(canonical);");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println(indent(indentLevel) + "return interned.get(0);");
+        writer.println(indent(--indentLevel) + "}");
+
+        writer.println();
+        writer.println(indent(indentLevel) + "/**");
+        writer.println(indent(indentLevel) + " * Distinct nodes currently in the table");
+        writer.println(indent(indentLevel) + " */");
+        writer.println(indent(indentLevel++) + "int size() {");
+        writer.println(indent(indentLevel) + "return table.size();");
+        writer.println(indent(--indentLevel) + "}");
+
+        writer.println();
+        writer.println(indent(indentLevel++) + "private " + baseName + " intern(" + baseName + " expr) {");
+        writer.println(indent(indentLevel) + "var existing = table.get(expr);");
+        writer.println(indent(indentLevel) + "var canonical = existing == null ? null : existing.get();");
+        writer.println(indent(indentLevel++) + "if (canonical != null) {");
+        writer.println(indent(indentLevel) + "return canonical;");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println(indent(indentLevel) + "table.put(expr, new WeakReference<>(expr));");
+        writer.println(indent(indentLevel) + "return expr;");
+        writer.println(indent(--indentLevel) + "}");
+
+        writer.println("}");
+        writer.close();
+    }
+
+    /**
+     * Emit <baseName>Arena: the same node types stored flat in one set of primitive arrays, with each
+     * node referring to its children by index instead of by reference.
+     *
+     * Each node has a kind and one int slot per field. Fields of the base type hold the index of the child
+     * node, Token fields an index into a token table and any other field an index into a literal table.
+     * Children are always added before their parents, so a node's children have smaller indices than it.
+     */
+    private static void defineArena(String outputDir, String baseName, List<String> types) throws IOException {
+        String arenaName = baseName + "Arena";
+        String path = outputDir + "/" + arenaName + ".java";
+        PrintWriter writer = new PrintWriter(path, "UTF-8");
+
+        int slotCount = 0;
+        for (String type : types) {
+            slotCount = Math.max(slotCount, type.split(":")[1].trim().split(", ").length);
+        }
+
+        writer.println("package com.craftinginterpreters;");
+        writer.println();
+        writer.println("import java.util.ArrayDeque;");
+        writer.println("import java.util.ArrayList;");
+        writer.println("import java.util.Arrays;");
+        writer.println("import java.util.BitSet;");
+        writer.println("import java.util.HashMap;");
+        writer.println("import java.util.List;");
+        writer.println();
+        writer.println("/**");
+        writer.println(" * A flat, index based alternative to " + baseName + " trees, generated by tool/GenerateAst.");
+        writer.println(" *");
+        writer.println(" * Nodes live in parallel primitive arrays: a kind and " + slotCount + " int slots per node. Child nodes, tokens");
+        writer.println(" * and literals are referred to by index, and children always come before their parents.");
+        writer.println(" */");
+        writer.println("final class " + arenaName + " {");
+
+        int indentLevel = 1;
+        for (int kind = 0; kind < types.size(); kind++) {
+            String className = types.get(kind).split(":")[0].trim();
+            writer.println(indent(indentLevel) + "static final byte " + constantName(className) + " = " + kind + ";");
+        }
+        writer.println();
+        writer.println(indent(indentLevel) + "private static final int INITIAL_CAPACITY = 64;");
+        writer.println();
+        writer.println(indent(indentLevel) + "private int size = 0;");
+        writer.println(indent(indentLevel) + "private byte[] kinds = new byte[INITIAL_CAPACITY];");
+        for (int slot = 0; slot < slotCount; slot++) {
+            writer.println(indent(indentLevel) + "private int[] slot" + slot + " = new int[INITIAL_CAPACITY];");
+        }
+        writer.println(indent(indentLevel) + "private final List<Token> tokens = new ArrayList<>();");
+        writer.println(indent(indentLevel) + "private final List<Object> literals = new ArrayList<>();");
+        writer.println();
+
+        // Common accessors
+        writer.println(indent(indentLevel++) + "int size() {");
+        writer.println(indent(indentLevel) + "return size;");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println();
+        writer.println(indent(indentLevel++) + "byte kind(int node) {");
+        writer.println(indent(indentLevel++) + "if (node < 0 || node >= size) {");
+        writer.println(indent(indentLevel) + "throw new IndexOutOfBoundsException(\"Node \" + node + \" out of bounds for size \" + size);");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println(indent(indentLevel) + "return kinds[node];");
+        writer.println(indent(--indentLevel) + "}");
+
+        // Per type factories and field accessors
+        for (int kind = 0; kind < types.size(); kind++) {
+            String className = types.get(kind).split(":")[0].trim();
+            String[] fields = types.get(kind).split(":")[1].trim().split(", ");
+            defineArenaType(writer, baseName, className, fields);
+        }
+
+        defineArenaToTree(writer, baseName, types);
+        defineArenaFromTree(writer, baseName, types);
+
+        // Storage
+        writer.println();
+        writer.println(indent(indentLevel++) + "private int add(byte kind) {");
+        writer.println(indent(indentLevel++) + "if (size == kinds.length) {");
+        writer.println(indent(indentLevel) + "kinds = Arrays.copyOf(kinds, size * 2);");
+        for (int slot = 0; slot < slotCount; slot++) {
+            writer.println(indent(indentLevel) + "slot" + slot + " = Arrays.copyOf(slot" + slot + ", size * 2);");
+        }
+        writer.println(indent(--indentLevel) + "}");
+        writer.println(indent(indentLevel) + "kinds[size] = kind;");
+        writer.println(indent(indentLevel) + "return size++;");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println();
+        writer.println(indent(indentLevel++) + "private void checkChild(int child) {");
+        writer.println(indent(indentLevel++) + "if (child < 0 || child >= size) {");
+        writer.println(indent(indentLevel) + "throw new IllegalArgumentException(\"No node \" + child + \" in this arena\");");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println();
+        writer.println(indent(indentLevel++) + "private int check(int node, byte expected) {");
+        writer.println(indent(indentLevel++) + "if (kind(node) != expected) {");
+        writer.println(indent(indentLevel) + "throw new IllegalArgumentException(\"Node \" + node + \" is of kind \" + kinds[node] + \", not \" + expected);");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println(indent(indentLevel) + "return node;");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println();
+        writer.println(indent(indentLevel++) + "private int addToken(Token token) {");
+        writer.println(indent(indentLevel) + "tokens.add(token);");
+        writer.println(indent(indentLevel) + "return tokens.size() - 1;");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println();
+        writer.println(indent(indentLevel++) + "private int addLiteral(Object literal) {");
+        writer.println(indent(indentLevel) + "literals.add(literal);");
+        writer.println(indent(indentLevel) + "return literals.size() - 1;");
+        writer.println(indent(--indentLevel) + "}");
+
+        writer.println("}");
+        writer.close();
+    }
+
+    private static void defineArenaType(PrintWriter writer, String baseName, String className, String[] fields) {
+        int indentLevel = 1;
+        String kind = constantName(className);
+        String factory = lowerFirst(className);
+
+        // Factory, taking child nodes as indices
+        List<String> parameters = new ArrayList<>();
+        for (String field : fields) {
+            String type = field.split(" ")[0];
+            String name = field.split(" ")[1];
+            parameters.add((type.equals(baseName) ? "int" : type) + " " + name);
+        }
+        writer.println();
+        writer.println(indent(indentLevel++) + "int " + factory + "(" + String.join(", ", parameters) + ") {");
+        for (String field : fields) {
+            if (field.split(" ")[0].equals(baseName)) {
+                writer.println(indent(indentLevel) + "checkChild(" + field.split(" ")[1] + ");");
+            }
+        }
+        writer.println(indent(indentLevel) + "var node = add(" + kind + ");");
+        for (int slot = 0; slot < fields.length; slot++) {
+            String type = fields[slot].split(" ")[0];
+            String name = fields[slot].split(" ")[1];
+            writer.println(indent(indentLevel) + "slot" + slot + "[node] = " + slotValue(baseName, type, name) + ";");
+        }
+        writer.println(indent(indentLevel) + "return node;");
+        writer.println(indent(--indentLevel) + "}");
+
+        // Field accessors
+        for (int slot = 0; slot < fields.length; slot++) {
+            String type = fields[slot].split(" ")[0];
+            String name = fields[slot].split(" ")[1];
+            String index = "slot" + slot + "[check(node, " + kind + ")]";
+            writer.println();
+            writer.println(indent(indentLevel++) + (type.equals(baseName) ? "int" : type) + " " + factory + upperFirst(name) + "(int node) {");
+            writer.println(indent(indentLevel) + "return " + fieldValue(baseName, type, index) + ";");
+            writer.println(indent(--indentLevel) + "}");
+        }
+    }
+
+    /**
+     * The same post-order walk as from<baseName>(), over node indices instead of references, so only the
+     * nodes reachable from the root are built and no recursion is needed however deep the tree is. An
+     * arena may share a node between several parents, so built nodes are remembered and reused.
+     */
+    private static void defineArenaToTree(PrintWriter writer, String baseName, List<String> types) {
+        int indentLevel = 1;
+        writer.println();
+        writer.println(indent(indentLevel) + "/**");
+        writer.println(indent(indentLevel) + " * Build the " + baseName + " tree rooted at `root`, without recursion. Only the nodes reachable from `root`");
+        writer.println(indent(indentLevel) + " * are visited, and a node shared by several parents is built once.");
+        writer.println(indent(indentLevel) + " */");
+        writer.println(indent(indentLevel++) + baseName + " to" + baseName + "(int root) {");
+        writer.println(indent(indentLevel) + "kind(root);");
+        writer.println(indent(indentLevel) + "var pending = new int[16];");
+        writer.println(indent(indentLevel) + "var pendingCount = 0;");
+        writer.println(indent(indentLevel) + "// Whether the node at each depth of `pending` has had its children pushed yet");
+        writer.println(indent(indentLevel) + "var expanded = new BitSet();");
+        writer.println(indent(indentLevel) + "// Trees built so far whose parents haven't been, last child on top");
+        writer.println(indent(indentLevel) + "var built = new ArrayList<" + baseName + ">();");
+        writer.println(indent(indentLevel) + "// Every node built so far, by index");
+        writer.println(indent(indentLevel) + "var done = new HashMap<Integer, " + baseName + ">();");
+        writer.println();
+        writer.println(indent(indentLevel) + "pending[pendingCount++] = root;");
+        writer.println(indent(indentLevel++) + "while (pendingCount > 0) {");
+        writer.println(indent(indentLevel) + "var depth = pendingCount - 1;");
+        writer.println(indent(indentLevel) + "var node = pending[depth];");
+        writer.println(indent(indentLevel) + "var existing = done.get(node);");
+        writer.println(indent(indentLevel++) + "if (existing != null) {");
+        writer.println(indent(indentLevel) + "pendingCount--;");
+        writer.println(indent(indentLevel) + "built.add(existing);");
+        writer.println(indent(indentLevel) + "continue;");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println(indent(indentLevel++) + "if (!expanded.get(depth)) {");
+        writer.println(indent(indentLevel) + "expanded.set(depth);");
+        writer.println(indent(indentLevel++) + "if (pendingCount + " + maxChildren(baseName, types) + " > pending.length) {");
+        writer.println(indent(indentLevel) + "pending = Arrays.copyOf(pending, pending.length * 2);");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println(indent(indentLevel) + "// Children are pushed last to first, so the first is built first");
+        writer.println(indent(indentLevel++) + "switch (kinds[node]) {");
+        for (String type : types) {
+            String className = type.split(":")[0].trim();
+            String[] fields = type.split(":")[1].trim().split(", ");
+            List<String> pushes = new ArrayList<>();
+            for (int slot = fields.length - 1; slot >= 0; slot--) {
+                if (fields[slot].split(" ")[0].equals(baseName)) {
+                    pushes.add("pending[pendingCount++] = slot" + slot + "[node];");
+                }
+            }
+            if (pushes.isEmpty()) {
+                continue;
+            }
+            writer.println(indent(indentLevel++) + "case " + constantName(className) + ":");
+            for (String push : pushes) {
+                writer.println(indent(indentLevel) + push);
+            }
+            writer.println(indent(indentLevel--) + "break;");
+        }
+        writer.println(indent(--indentLevel) + "}");
+        writer.println(indent(indentLevel) + "expanded.clear(depth + 1, pendingCount);");
+        writer.println(indent(indentLevel) + "continue;");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println();
+        writer.println(indent(indentLevel) + "pendingCount--;");
+        writer.println(indent(indentLevel) + baseName + " expr;");
+        writer.println(indent(indentLevel++) + "switch (kinds[node]) {");
+        for (String type : types) {
+            String className = type.split(":")[0].trim();
+            String[] fields = type.split(":")[1].trim().split(", ");
+            List<String> arguments = new ArrayList<>();
+            for (int slot = 0; slot < fields.length; slot++) {
+                String fieldType = fields[slot].split(" ")[0];
+                String name = fields[slot].split(" ")[1];
+                String index = "slot" + slot + "[node]";
+                arguments.add(fieldType.equals(baseName) ? name : fieldValue(baseName, fieldType, index));
+            }
+            writer.println(indent(indentLevel++) + "case " + constantName(className) + ": {");
+            // The last child's tree is on top
+            for (int slot = fields.length - 1; slot >= 0; slot--) {
+                if (fields[slot].split(" ")[0].equals(baseName)) {
+                    writer.println(indent(indentLevel) + "var " + fields[slot].split(" ")[1] + " = built.remove(built.size() - 1);");
+                }
+            }
+            writer.println(indent(indentLevel) + "expr = new " + baseName + "." + className + "(" + String.join(", ", arguments) + ");");
+            writer.println(indent(indentLevel) + "break;");
+            writer.println(indent(--indentLevel) + "}");
+        }
+        writer.println(indent(indentLevel++) + "default:");
+        writer.println(indent(indentLevel--) + "throw new IllegalStateException(\"Unknown node kind \" + kinds[node]);");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println(indent(indentLevel) + "done.put(node, expr);");
+        writer.println(indent(indentLevel) + "built.add(expr);");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println(indent(indentLevel) + "return built.get(0);");
+        writer.println(indent(--indentLevel) + "}");
+    }
+
+    private static int maxChildren(String baseName, List<String> types) {
+        int max = 0;
+        for (String type : types) {
+            int children = 0;
+            for (String field : type.split(":")[1].trim().split(", ")) {
+                if (field.split(" ")[0].equals(baseName)) {
+                    children++;
+                }
+            }
+            max = Math.max(max, children);
+        }
+        return max;
+    }
+
+    /**
+     * A post-order walk over an explicit stack, so copying a tree needs no recursion however deep it is.
+     * Each node is visited twice: first to push its children, then to add it once they have been.
+     */
+    private static void defineArenaFromTree(PrintWriter writer, String baseName, List<String> types) {
+        int indentLevel = 1;
+        writer.println();
+        writer.println(indent(indentLevel) + "/**");
+        writer.println(indent(indentLevel) + " * Add a copy of the " + baseName + " tree `expr` to this arena, returning the index of its root.");
+        writer.println(indent(indentLevel) + " * Walks the tree with an explicit stack rather than recursion, so any depth can be copied.");
+        writer.println(indent(indentLevel) + " */");
+        writer.println(indent(indentLevel++) + "int from" + baseName + "(" + baseName + " expr) {");
+        writer.println(indent(indentLevel) + "var pending = new ArrayDeque<" + baseName + ">();");
+        writer.println(indent(indentLevel) + "// Whether the node at each depth of `pending` has had its children pushed yet");
+        writer.println(indent(indentLevel) + "var expanded = new BitSet();");
+        writer.println(indent(indentLevel) + "// Indices of the nodes added so far whose parents haven't been, last child on top");
+        writer.println(indent(indentLevel) + "var added = new int[16];");
+        writer.println(indent(indentLevel) + "var addedCount = 0;");
+        writer.println();
+        writer.println(indent(indentLevel) + "pending.push(expr);");
+        writer.println(indent(indentLevel++) + "while (!pending.isEmpty()) {");
+        writer.println(indent(indentLevel) + "var depth = pending.size() - 1;");
+        writer.println(indent(indentLevel) + "var node = pending.peek();");
+        writer.println(indent(indentLevel++) + "if (!expanded.get(depth)) {");
+        writer.println(indent(indentLevel) + "expanded.set(depth);");
+        writer.println(indent(indentLevel) + "// Children are pushed last to first, so the first is added first and gets the smaller index");
+        defineExpandChildren(writer, baseName, types, indentLevel);
+        writer.println(indent(indentLevel) + "expanded.clear(depth + 1, pending.size());");
+        writer.println(indent(indentLevel) + "continue;");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println();
+        writer.println(indent(indentLevel) + "pending.pop();");
+        writer.println(indent(indentLevel) + "int index;");
+        String keyword = "if";
+        for (String type : types) {
+            String className = type.split(":")[0].trim();
+            String[] fields = type.split(":")[1].trim().split(", ");
+            String variable = lowerFirst(className);
+            writer.println(indent(indentLevel++) + (keyword.equals("if") ? "" : "} ") + keyword + " (node instanceof " + baseName + "." + className + ") {");
+            writer.println(indent(indentLevel) + "var " + variable + " = (" + baseName + "." + className + ") node;");
+            List<String> arguments = new ArrayList<>();
+            for (String field : fields) {
+                String fieldType = field.split(" ")[0];
+                String name = field.split(" ")[1];
+                arguments.add(fieldType.equals(baseName) ? name : variable + "." + name);
+            }
+            // The last child's index is on top
+            for (int i = fields.length - 1; i >= 0; i--) {
+                if (fields[i].split(" ")[0].equals(baseName)) {
+                    writer.println(indent(indentLevel) + "var " + fields[i].split(" ")[1] + " = added[--addedCount];");
+                }
+            }
+            writer.println(indent(indentLevel) + "index = " + variable + "(" + String.join(", ", arguments) + ");");
+            indentLevel--;
+            keyword = "else if";
+        }
+        writer.println(indent(indentLevel++) + "} else {");
+        writer.println(indent(indentLevel) + "throw new IllegalArgumentException(\"Unknown " + baseName + " type \" + node.getClass().getName());");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println(indent(indentLevel++) + "if (addedCount == added.length) {");
+        writer.println(indent(indentLevel) + "added = Arrays.copyOf(added, addedCount * 2);");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println(indent(indentLevel) + "added[addedCount++] = index;");
+        writer.println(indent(--indentLevel) + "}");
+        writer.println(indent(indentLevel) + "return added[0];");
+        writer.println(indent(--indentLevel) + "}");
+    }
+
+    /**
+     * The first visit of a post-order walk: push the children of `node` onto `pending`, last to first
+     */
+    private static void defineExpandChildren(PrintWriter writer, String baseName, List<String> types, int indentLevel) {
+        String keyword = "if";
+        for (String type : types) {
+            String className = type.split(":")[0].trim();
+            String[] fields = type.split(":")[1].trim().split(", ");
+            List<String> children = new ArrayList<>();
+            for (String field : fields) {
+                if (field.split(" ")[0].equals(baseName)) {
+                    children.add(0, field.split(" ")[1]);
+                }
+            }
+            if (children.isEmpty()) {
+                continue;
+            }
+            String variable = lowerFirst(className);
+            writer.println(indent(indentLevel++) + (keyword.equals("if") ? "" : "} ") + keyword + " (node instanceof " + baseName + "." + className + ") {");
+            writer.println(indent(indentLevel) + "var " + variable + " = (" + baseName + "." + className + ") node;");
+            for (String child : children) {
+                writer.println(indent(indentLevel) + "pending.push(" + variable + "." + child + ");");
+            }
+            indentLevel--;
+            keyword = "else if";
+        }
+        writer.println(indent(indentLevel) + "}");
+    }
+
+    private static String slotValue(String baseName, String type, String name) {
+        if (type.equals(baseName)) return name;
+        if (type.equals("Token")) return "addToken(" + name + ")";
+        return "addLiteral(" + name + ")";
+    }
+
+    private static String fieldValue(String baseName, String type, String index) {
+        if (type.equals(baseName)) return index;
+        if (type.equals("Token")) return "tokens.get(" + index + ")";
+        if (type.equals("Object")) return "literals.get(" + index + ")";
+        return "(" + type + ") literals.get(" + index + ")";
+    }
+
+    private static String constantName(String className) {
+        return className.toUpperCase();
+    }
+
+    private static String lowerFirst(String name) {
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static String upperFirst(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
     private static String indent(int level) {
         return " ".repeat(level * 4);
     }